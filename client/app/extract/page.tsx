@@ -2,7 +2,7 @@
 
 import { useState, useEffect } from "react";
 import { useRouter } from "next/navigation";
-import { initiateExtraction, getExtractionStatus } from "@/services/api";
+import { initiateExtraction, getExtractionStatus, watchExtractionStatus, type ExtractionJob } from "@/services/api";
 import { Button } from "@/components/ui/button";
 import { Card, CardContent, CardDescription, CardHeader, CardTitle } from "@/components/ui/card";
 import { Youtube, Search } from "lucide-react";
@@ -22,28 +22,40 @@ export default function ExtractPage() {
 
   useEffect(() => {
     if (!jobId) return;
-    let interval: NodeJS.Timeout;
+    let interval: NodeJS.Timeout | undefined;
+    let finished = false;
+    const handleJob = (job: ExtractionJob) => {
+      setStatus(job.status);
+      setProgress(job.progress);
+      if (job.status === "COMPLETE" && job.resultVideoId) {
+        finished = true;
+        clearInterval(interval);
+        router.push(`/extract/${job.resultVideoId}`);
+      }
+      if (job.status === "FAILED") {
+        finished = true;
+        clearInterval(interval);
+        setError(job.errorMessage || "Extraction failed.");
+      }
+    };
     const pollStatus = async () => {
       try {
-        const job = await getExtractionStatus(jobId);
-        setStatus(job.status);
-        setProgress(job.progress);
-        if (job.status === "COMPLETE" && job.resultVideoId) {
-          clearInterval(interval);
-          router.push(`/extract/${job.resultVideoId}`);
-        }
-        if (job.status === "FAILED") {
-          clearInterval(interval);
-          setError(job.errorMessage || "Extraction failed.");
-        }
+        handleJob(await getExtractionStatus(jobId));
       } catch (err) {
         setError("Failed to get extraction status.");
         clearInterval(interval);
       }
     };
-    interval = setInterval(pollStatus, 3000);
-    pollStatus();
-    return () => clearInterval(interval);
+    // Prefer pushed progress; poll only if the stream can't be used
+    const closeStream = watchExtractionStatus(jobId, handleJob, () => {
+      if (finished || interval) return;
+      interval = setInterval(pollStatus, 3000);
+      pollStatus();
+    });
+    return () => {
+      closeStream();
+      clearInterval(interval);
+    };
   }, [jobId, router]);
 
   return (
@@ -2,7 +2,7 @@
 
 import { useState, useEffect } from "react";
 import { useRouter, useParams } from "next/navigation";
-import { getExtractionStatus } from "@/services/api";
+import { getExtractionStatus, watchExtractionStatus, type ExtractionJob } from "@/services/api";
 import { Card, CardContent, CardDescription, CardHeader, CardTitle } from "@/components/ui/card";
 import { Progress } from "@/components/ui/progress";
 import { Button } from "@/components/ui/button";
@@ -93,64 +93,78 @@ export default function LoadingPage() {
   useEffect(() => {
     if (!jobId) return;
 
-    const pollStatus = async () => {
-      try {
-        const job = await getExtractionStatus(jobId);
-        console.log("[Loading] Job status:", job.status, "Progress:", job.progress);
-        const progressState = getProgressState(job.status, job.progress);
-        setCurrentState(progressState);
-        
-        // Animate progress bar smoothly
-        setAnimatedProgress(prev => {
-          const target = job.progress;
-          console.log("[Loading] Progress animation - prev:", prev, "target:", target);
-          if (prev < target) {
-            return Math.min(prev + 1, target);
-          }
-          return target;
-        });
+    let finished = false;
+    let interval: ReturnType<typeof setInterval> | undefined;
 
-        // Handle completion
-        if (job.status === "COMPLETE") {
-          const youtubeVideoId = job.resultYoutubeVideoId || job.youtubeVideoId;
-          if (youtubeVideoId) {
-            console.log("[Loading] Job complete, redirecting to:", youtubeVideoId);
-            setIsPolling(false);
-            // Redirect to results page after a short delay
-            setTimeout(() => {
-              console.log("[Loading] Executing redirect to:", `/extract/${youtubeVideoId}`);
-              router.push(`/extract/${youtubeVideoId}`);
-            }, 1500);
-          } else {
-            console.log("[Loading] Job complete but no YouTube video ID found:", job);
-            console.log("[Loading] Full job object:", JSON.stringify(job, null, 2));
-            console.log("[Loading] Available fields:", Object.keys(job));
-          }
+    const handleJob = (job: ExtractionJob) => {
+      console.log("[Loading] Job status:", job.status, "Progress:", job.progress);
+      const progressState = getProgressState(job.status, job.progress);
+      setCurrentState(progressState);
+      
+      // Animate progress bar smoothly
+      setAnimatedProgress(prev => {
+        const target = job.progress;
+        console.log("[Loading] Progress animation - prev:", prev, "target:", target);
+        if (prev < target) {
+          return Math.min(prev + 1, target);
         }
+        return target;
+      });
 
-        // Handle failure
-        if (job.status === "FAILED") {
+      // Handle completion
+      if (job.status === "COMPLETE") {
+        finished = true;
+        const youtubeVideoId = job.resultYoutubeVideoId || job.youtubeVideoId;
+        if (youtubeVideoId) {
+          console.log("[Loading] Job complete, redirecting to:", youtubeVideoId);
           setIsPolling(false);
-          setError(job.errorMessage || "Extraction failed. Please try again.");
+          // Redirect to results page after a short delay
+          setTimeout(() => {
+            console.log("[Loading] Executing redirect to:", `/extract/${youtubeVideoId}`);
+            router.push(`/extract/${youtubeVideoId}`);
+          }, 1500);
+        } else {
+          console.log("[Loading] Job complete but no YouTube video ID found:", job);
+          console.log("[Loading] Full job object:", JSON.stringify(job, null, 2));
+          console.log("[Loading] Available fields:", Object.keys(job));
         }
+      }
+
+      // Handle failure
+      if (job.status === "FAILED") {
+        finished = true;
+        setIsPolling(false);
+        setError(job.errorMessage || "Extraction failed. Please try again.");
+      }
+    };
+
+    const pollStatus = async () => {
+      try {
+        handleJob(await getExtractionStatus(jobId));
       } catch (err) {
+        finished = true;
         setError("Failed to get extraction status. Please try again.");
         setIsPolling(false);
       }
     };
 
-    // Initial poll
-    pollStatus();
-
-    // Set up polling interval
-    const interval = setInterval(() => {
-      if (isPolling) {
-        pollStatus();
-      }
-    }, 6000);
+    // Progress is pushed over a server-sent event stream; fall back to polling if it drops
+    const closeStream = watchExtractionStatus(jobId, handleJob, () => {
+      if (finished || interval) return;
+      console.log("[Loading] Progress stream unavailable, falling back to polling");
+      pollStatus();
+      interval = setInterval(() => {
+        if (!finished) {
+          pollStatus();
+        }
+      }, 6000);
+    });
 
-    return () => clearInterval(interval);
-  }, [jobId, router, isPolling]);
+    return () => {
+      closeStream();
+      if (interval) clearInterval(interval);
+    };
+  }, [jobId, router]);
 
   // Animate progress bar
   useEffect(() => {
@@ -8,6 +8,8 @@ export interface ExtractionJob {
   resultVideoId?: number;
   resultYoutubeVideoId?: string;
   errorMessage?: string;
+  stageTimings?: Record<string, number>; // milliseconds per pipeline stage
+  metrics?: Record<string, number | string>; // e.g. commentsFetched / commentsUsed, llmMode / llmCalls
 }
 
 export interface Workout {
@@ -69,6 +71,47 @@ export async function initiateExtraction(url: string) {
   return res.json(); // { jobId }
 }
 
+// Re-runs a FAILED job from its last completed stage; resolves to { jobId }, which may be another in-flight job for the same video
+export async function retryExtraction(jobId: string) {
+  const res = await fetch(`${API_BASE_URL}/workouts/extract/${jobId}/retry`, { method: "POST" });
+  if (!res.ok) throw new Error("Retry failed");
+  return res.json();
+}
+
+export interface IngestionProgress {
+  batchId: string;
+  sourceUrl: string;
+  state: "RUNNING" | "COMPLETE";
+  videosFound: number;
+  videosSkipped: number; // already in the catalog or being extracted
+  videosQueued: number;
+  pending: number;
+  running: number;
+  complete: number;
+  failed: number;
+  percent: number;
+  createdAt: string;
+}
+
+// Queues every new video of a channel or playlist URL as one batch. Needs the server's admin token
+export async function ingestCreator(url: string, adminToken: string): Promise<IngestionProgress> {
+  const res = await fetch(`${API_BASE_URL}/creators/ingest`, {
+    method: "POST",
+    headers: { "Content-Type": "application/json", "X-Admin-Token": adminToken },
+    body: JSON.stringify({ url }),
+  });
+  if (!res.ok) throw new Error("Ingestion failed");
+  return res.json();
+}
+
+export async function getIngestionProgress(batchId: string, adminToken: string): Promise<IngestionProgress> {
+  const res = await fetch(`${API_BASE_URL}/creators/ingest/${batchId}`, {
+    headers: { "X-Admin-Token": adminToken },
+  });
+  if (!res.ok) throw new Error("Failed to fetch ingestion progress");
+  return res.json();
+}
+
 export async function getExtractionStatus(jobId: string): Promise<ExtractionJob> {
   const res = await fetch(`${API_BASE_URL}/workouts/extract/status/${jobId}`);
   if (!res.ok) throw new Error("Failed to get extraction status");
@@ -77,6 +120,28 @@ export async function getExtractionStatus(jobId: string): Promise<ExtractionJob>
   return data;
 };
 
+// Subscribes to server-pushed progress for a job. The stream closes itself once the job
+// finishes; call the returned function to stop listening earlier.
+export function watchExtractionStatus(
+  jobId: string,
+  onUpdate: (job: ExtractionJob) => void,
+  onError: () => void,
+): () => void {
+  const source = new EventSource(`${API_BASE_URL}/workouts/extract/status/${jobId}/stream`);
+  source.addEventListener("progress", (event) => {
+    const job: ExtractionJob = JSON.parse((event as MessageEvent).data);
+    if (job.status === "COMPLETE" || job.status === "FAILED") {
+      source.close();
+    }
+    onUpdate(job);
+  });
+  source.onerror = () => {
+    source.close();
+    onError();
+  };
+  return () => source.close();
+}
+
 
 
 export async function getWorkoutByYoutubeId(youtubeVideoId: string): Promise<Workout> {
@@ -0,0 +1,132 @@
+package com.svastik.workoutextract;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the platform-thread and virtual-thread extraction executors at the same
+ * concurrency. Each operation pushes a batch of stubbed jobs through the executor: yt-dlp is a
+ * sleeping child process and Gemini a local HTTP server that answers after a fixed delay, so each
+ * job has the same blocking profile as the real pipeline. The score is the time per batch; divide
+ * JOBS by it for jobs/second. Other widths can be compared with -Dbenchmark.concurrency=4,64.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=ExtractionExecutorBenchmark
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ExtractionExecutorBenchmark {
+    private static final int JOBS = 200;
+    private static final String YT_DLP_SECONDS = "0.4";
+    private static final long GEMINI_DELAY_MILLIS = 800;
+    private static final long DB_SAVE_MILLIS = 5;
+
+    @Param({"64"})
+    public int concurrency;
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    private HttpServer geminiStub;
+    private RestTemplate restTemplate;
+    private String geminiUrl;
+    private ThreadPoolTaskExecutor executor;
+
+    @Setup
+    public void start() throws IOException {
+        geminiStub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        geminiStub.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        geminiStub.createContext("/generateContent", exchange -> {
+            try {
+                Thread.sleep(GEMINI_DELAY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = "{\"candidates\":[]}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        geminiStub.start();
+        geminiUrl = "http://127.0.0.1:" + geminiStub.getAddress().getPort() + "/generateContent";
+        restTemplate = new RestTemplate();
+        executor = AsyncConfig.buildExtractionExecutor(concurrency, JOBS, virtualThreads);
+    }
+
+    @TearDown
+    public void stop() {
+        executor.shutdown();
+        geminiStub.stop(0);
+    }
+
+    @Benchmark
+    public void batch() throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(JOBS);
+        for (int i = 0; i < JOBS; i++) {
+            executor.execute(() -> {
+                try {
+                    runStubbedJob();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Stubbed job failed", e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        if (!done.await(10, TimeUnit.MINUTES)) {
+            throw new IllegalStateException("Batch did not finish");
+        }
+    }
+
+    @Test
+    void run() throws Exception {
+        ChainedOptionsBuilder options = new OptionsBuilder()
+            .include(ExtractionExecutorBenchmark.class.getSimpleName());
+        String widths = System.getProperty("benchmark.concurrency");
+        if (widths != null) {
+            options.param("concurrency", widths.split(","));
+        }
+        new Runner(options.build()).run();
+    }
+
+    // Mirrors processWorkoutExtraction: progress saves, one yt-dlp run, one Gemini call, final saves
+    private void runStubbedJob() throws Exception {
+        Thread.sleep(DB_SAVE_MILLIS);
+        Process ytDlp = new ProcessBuilder("sleep", YT_DLP_SECONDS).start();
+        ytDlp.waitFor();
+        Thread.sleep(DB_SAVE_MILLIS);
+        restTemplate.postForObject(geminiUrl, Map.of("contents", "stub"), String.class);
+        Thread.sleep(DB_SAVE_MILLIS);
+    }
+}
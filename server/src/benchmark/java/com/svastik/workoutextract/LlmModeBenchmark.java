@@ -0,0 +1,205 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * JMH comparison of per-video latency of the single-call and staged LLM flows, preceded by a
+ * printout of Gemini calls and tokens per video. Gemini is a local stub that reports usageMetadata
+ * of roughly four characters per token and answers after a delay modelled on prompt and output
+ * size, with half of each extracted workout's values left unstated so the staged flow needs its
+ * estimation call. Production numbers come from the extraction.llm.* metrics with
+ * extraction.llm.single-call-ratio between 0 and 1.
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=LlmModeBenchmark
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LlmModeBenchmark {
+    private static final int VIDEOS = 20;
+    private static final int EXERCISES = 6;
+    private static final long BASE_MILLIS = 150;
+    private static final double MILLIS_PER_PROMPT_TOKEN = 0.02;
+    private static final double MILLIS_PER_OUTPUT_TOKEN = 4;
+    private static final List<String> COMMENTS = List.of("Squat 4x10", "Romanian Deadlift 3x8", "Walking Lunges 3x12 each leg");
+
+    @Param({"STAGED", "SINGLE"})
+    public WorkoutAnalyzer.Mode mode;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private HttpServer geminiStub;
+    private String transcript;
+    private WorkoutAnalyzer analyzer;
+    private int video;
+
+    @Setup
+    public void start() throws IOException {
+        geminiStub = startGeminiStub(objectMapper);
+        transcript = loadTranscript(objectMapper);
+        analyzer = analyzer(objectMapper, "http://127.0.0.1:" + geminiStub.getAddress().getPort());
+    }
+
+    @TearDown
+    public void stop() {
+        geminiStub.stop(0);
+    }
+
+    @Benchmark
+    public LlmUsage analyze() {
+        return analyzer.analyze(mode, "Leg Day " + video++, "Coach", COMMENTS, transcript, Instant.now().plusSeconds(60)).usage();
+    }
+
+    @Test
+    void run() throws Exception {
+        // Calls and tokens do not vary between runs: print them once alongside the timings
+        ObjectMapper mapper = new ObjectMapper();
+        HttpServer stub = startGeminiStub(mapper);
+        try {
+            String text = loadTranscript(mapper);
+            WorkoutAnalyzer workoutAnalyzer = analyzer(mapper, "http://127.0.0.1:" + stub.getAddress().getPort());
+            System.out.printf("%n%-8s %10s %14s %14s%n", "mode", "calls", "prompt tokens", "output tokens");
+            for (WorkoutAnalyzer.Mode analyzerMode : List.of(WorkoutAnalyzer.Mode.STAGED, WorkoutAnalyzer.Mode.SINGLE)) {
+                long calls = 0, promptTokens = 0, outputTokens = 0;
+                for (int i = 0; i < VIDEOS; i++) {
+                    LlmUsage usage = workoutAnalyzer.analyze(analyzerMode, "Leg Day " + i, "Coach", COMMENTS, text,
+                        Instant.now().plusSeconds(60)).usage();
+                    calls += usage.calls();
+                    promptTokens += usage.promptTokens();
+                    outputTokens += usage.outputTokens();
+                }
+                System.out.printf("%-8s %10.1f %14d %14d%n", analyzerMode, (double) calls / VIDEOS,
+                    promptTokens / VIDEOS, outputTokens / VIDEOS);
+            }
+        } finally {
+            stub.stop(0);
+        }
+
+        new Runner(new OptionsBuilder()
+            .include(LlmModeBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    private static HttpServer startGeminiStub(ObjectMapper objectMapper) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/models/stub:generateContent", exchange -> {
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String prompt = request.at("/contents/0/parts/0/text").asText();
+            boolean singleCall = request.at("/generationConfig/responseSchema/properties").has("basedOnMetadata");
+            String answer = objectMapper.writeValueAsString(singleCall ? singleCallAnswer() : stagedAnswer(prompt));
+            int promptTokens = prompt.length() / 4;
+            int outputTokens = answer.length() / 4;
+            try {
+                Thread.sleep(BASE_MILLIS + Math.round(promptTokens * MILLIS_PER_PROMPT_TOKEN + outputTokens * MILLIS_PER_OUTPUT_TOKEN));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = objectMapper.writeValueAsBytes(Map.of(
+                "candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", answer))), "finishReason", "STOP")),
+                "usageMetadata", Map.of("promptTokenCount", promptTokens, "candidatesTokenCount", outputTokens,
+                    "totalTokenCount", promptTokens + outputTokens)));
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static String loadTranscript(ObjectMapper objectMapper) throws IOException {
+        try (InputStream in = LlmModeBenchmark.class.getResourceAsStream("/captions/rolling-auto-captions.en.vtt")) {
+            return new TranscriptReader(objectMapper).readVtt(new StringReader(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+        }
+    }
+
+    private static WorkoutAnalyzer analyzer(ObjectMapper objectMapper, String baseUrl) {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // Cache disabled: every video is a distinct request in production
+        LlmResponseCache cache = new LlmResponseCache(mock(LlmResponseCacheRepository.class), objectMapper, meterRegistry,
+            false, 0, Duration.ofDays(1));
+        GeminiClient client = new GeminiClient(objectMapper, cache,
+            new AdaptiveConcurrencyLimiter(4, 1, 8, 0.5, Duration.ofSeconds(30)),
+            new GeminiRetryPolicy(1, Duration.ofMillis(10), Duration.ofMillis(10)), meterRegistry,
+            baseUrl, "stub", "benchmark", Duration.ofSeconds(2), Duration.ofSeconds(30));
+        return new WorkoutAnalyzer(client, new PromptBudgeter(12000), objectMapper, meterRegistry, 1.0);
+    }
+
+    private static Map<String, Object> singleCallAnswer() {
+        List<Map<String, Object>> exercises = new java.util.ArrayList<>();
+        for (int i = 0; i < EXERCISES; i++) {
+            boolean stated = i % 2 == 0;
+            Map<String, Object> exercise = new java.util.LinkedHashMap<>();
+            exercise.put("name", "Exercise " + i);
+            exercise.put("repsObserved", stated ? "10" : null);
+            exercise.put("repsEstimated", "10");
+            exercise.put("restObserved", stated ? "90s" : null);
+            exercise.put("restEstimated", "90s");
+            exercise.put("setsObserved", stated ? "4" : null);
+            exercise.put("setsEstimated", "4");
+            exercise.put("emoji", "🦵");
+            exercise.put("notes", "Keep the chest up and drive through the whole foot");
+            exercise.put("difficulty", "Medium");
+            exercises.add(exercise);
+        }
+        return Map.of("equipment", List.of("Barbell"), "exercises", exercises, "workoutType", "Legs",
+            "targetMuscles", List.of("Quads", "Glutes"), "basedOnMetadata", false);
+    }
+
+    // First call leaves values unstated; the estimation call fills them in
+    private static Map<String, Object> stagedAnswer(String prompt) {
+        boolean estimating = prompt.contains("some values are missing");
+        List<Map<String, Object>> exercises = new java.util.ArrayList<>();
+        for (int i = 0; i < EXERCISES; i++) {
+            boolean stated = estimating || i % 2 == 0;
+            Map<String, Object> exercise = new java.util.LinkedHashMap<>();
+            exercise.put("name", "Exercise " + i);
+            exercise.put("reps", stated ? "10" : null);
+            exercise.put("rest", stated ? "90s" : null);
+            exercise.put("sets", stated ? "4" : null);
+            exercise.put("emoji", "🦵");
+            exercise.put("notes", "Keep the chest up and drive through the whole foot");
+            exercise.put("difficulty", "Medium");
+            exercises.add(exercise);
+        }
+        return Map.of("equipment", List.of("Barbell"), "exercises", exercises, "workoutType", "Legs",
+            "targetMuscles", List.of("Quads", "Glutes"));
+    }
+}
@@ -0,0 +1,118 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * JMH comparison of the single-pass TranscriptReader against the regex-based cleanTranscript it
+ * replaced. Uses the bundled rolling auto-caption fixture, or every .vtt file in the directory
+ * given by -Dbenchmark.captions (e.g. files kept from real yt-dlp runs).
+ *
+ * Run with: mvn test -Pbenchmark -Dtest=TranscriptCleaningBenchmark
+ */
+@Tag("benchmark")
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscriptCleaningBenchmark {
+    private List<String> captions;
+    private TranscriptReader reader;
+
+    @Setup
+    public void loadCaptions() throws IOException {
+        captions = loadCaptionFiles();
+        reader = new TranscriptReader(new ObjectMapper());
+    }
+
+    @Benchmark
+    public int legacyRegex() {
+        int total = 0;
+        for (String raw : captions) {
+            total += legacyCleanTranscript(raw).length();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int singlePass() throws IOException {
+        int total = 0;
+        for (String raw : captions) {
+            total += reader.readVtt(new StringReader(raw)).length();
+        }
+        return total;
+    }
+
+    @Test
+    void run() throws Exception {
+        // Prompt size is the other half of the win: print it alongside the timings
+        List<String> files = loadCaptionFiles();
+        TranscriptReader transcriptReader = new TranscriptReader(new ObjectMapper());
+        long legacyChars = 0, singlePassChars = 0;
+        for (String raw : files) {
+            legacyChars += legacyCleanTranscript(raw).length();
+            singlePassChars += transcriptReader.readVtt(new StringReader(raw)).length();
+        }
+        System.out.printf("%d caption files: legacy %d chars, single pass %d chars (%.0f%% smaller)%n",
+            files.size(), legacyChars, singlePassChars, 100.0 * (legacyChars - singlePassChars) / legacyChars);
+
+        new Runner(new OptionsBuilder()
+            .include(TranscriptCleaningBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+
+    private static List<String> loadCaptionFiles() throws IOException {
+        List<String> files = new ArrayList<>();
+        String directory = System.getProperty("benchmark.captions");
+        if (directory != null) {
+            try (Stream<Path> paths = Files.list(Path.of(directory))) {
+                for (Path path : paths.filter(p -> p.toString().endsWith(".vtt")).toList()) {
+                    files.add(Files.readString(path));
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            try (InputStream in = TranscriptCleaningBenchmark.class.getResourceAsStream("/captions/rolling-auto-captions.en.vtt")) {
+                files.add(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return files;
+    }
+
+    // VideoExtractionService.cleanTranscript as it was before TranscriptReader
+    private static String legacyCleanTranscript(String rawTranscript) {
+        if (rawTranscript == null) return null;
+        String cleaned = rawTranscript.replaceAll("(?m)^\\d{2}:\\d{2}:\\d{2}\\.\\d{3} --> \\d{2}:\\d{2}:\\d{2}\\.\\d{3}.*$", "");
+        cleaned = cleaned.replaceAll("\\[.*?\\]|\\(.*?\\)", "");
+        cleaned = cleaned.replaceAll("\\b(like|um|uh|you know)\\b", "");
+        cleaned = cleaned.replaceAll("\\[pause\\]|\\.\\.\\.", "");
+        cleaned = cleaned.replaceAll("(?m)^\\s*$", "");
+        cleaned = cleaned.replaceAll("\\s+", " ").trim();
+        return cleaned;
+    }
+}
@@ -0,0 +1,121 @@
+package com.svastik.workoutextract;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * AIMD concurrency limit for calls to a rate-limited upstream. A call that succeeds within the
+ * latency threshold while the limit is actually in use raises the limit by 1/limit (about +1 per
+ * round of calls); a call that is throttled (429/503, timeout) or slower than the threshold
+ * multiplies it by the backoff ratio. Callers beyond the current limit wait for a slot.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double SLOW_CALL_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotFreed = lock.newCondition();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio, Duration latencyThreshold) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Takes a slot, waiting at most {@code maxWait}. Returns false if none became free in time.
+     */
+    public boolean acquire(Duration maxWait) throws InterruptedException {
+        long remaining = maxWait.toNanos();
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (remaining <= 0) {
+                    return false;
+                }
+                remaining = slotFreed.awaitNanos(remaining);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot after a successful call that took {@code latency}.
+     */
+    public void onSuccess(Duration latency) {
+        lock.lock();
+        try {
+            if (latency.toNanos() > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * SLOW_CALL_RATIO);
+            } else if (inFlight * 2 >= limit) {
+                // Only grow when the current limit is actually being used
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot after the upstream signalled overload.
+     */
+    public void onOverload() {
+        lock.lock();
+        try {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot without adjusting the limit, for failures unrelated to load.
+     */
+    public void onIgnore() {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        inFlight--;
+        slotFreed.signalAll();
+    }
+}
@@ -0,0 +1,34 @@
+package com.svastik.workoutextract;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+/**
+ * Checks the X-Admin-Token header of the endpoints that can start large amounts of work (backfill,
+ * bulk ingestion) against extraction.admin-token. With no token configured they are disabled.
+ */
+@Component
+public class AdminTokenGuard {
+    public static final String HEADER = "X-Admin-Token";
+
+    private final String adminToken;
+
+    public AdminTokenGuard(@Value("${extraction.admin-token:${extraction.backfill.admin-token:}}") String adminToken) {
+        this.adminToken = adminToken;
+    }
+
+    public boolean authorized(String token) {
+        return !adminToken.isBlank() && token != null
+            && MessageDigest.isEqual(adminToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static ResponseEntity<?> forbidden() {
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Admin token required"));
+    }
+}
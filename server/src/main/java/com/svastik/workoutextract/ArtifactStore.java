@@ -0,0 +1,318 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compressed archive of the raw yt-dlp output of each fetch (info JSON with comments,
+ * subtitles, separate comments file), so prompt or cleaning changes can be re-run from local
+ * files instead of scraping YouTube again. Artifacts live at
+ * {@code <root>/<youtubeVideoId>/<fetch date>/<type>.gz}, where the type is the file name after
+ * the video ID ("info.json", "en.vtt", ...). Sizes are tracked in memory; a periodic sweep drops
+ * artifacts older than the TTL, then the least recently used ones until the store fits max-bytes.
+ * A file's modification time doubles as its last access, so LRU order survives restarts. The
+ * in-memory index is keyed by video, so a restore only looks at that video's artifacts.
+ *
+ * Store failures never fail a job: they are logged, and a missing artifact only means yt-dlp runs.
+ */
+@Component
+public class ArtifactStore {
+    private static final Logger logger = LoggerFactory.getLogger(ArtifactStore.class);
+    private static final String SUFFIX = ".gz";
+    // Only a fetch whose info JSON was archived can stand in for a new one
+    static final String INFO_JSON = "info.json";
+
+    private final Path root;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final ConcurrentHashMap<String, Map<Path, Artifact>> index = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final Counter writes;
+    private final Counter reuses;
+    private final Counter evictions;
+
+    public ArtifactStore(
+            @Value("${extraction.artifacts.root:${user.home}/.workoutextract/artifacts}") String root,
+            @Value("${extraction.artifacts.enabled:true}") boolean enabled,
+            @Value("${extraction.artifacts.max-bytes:2147483648}") long maxBytes,
+            @Value("${extraction.artifacts.ttl:P90D}") Duration ttl,
+            MeterRegistry meterRegistry) {
+        this.root = Paths.get(root);
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.writes = Counter.builder("extraction.artifacts.writes")
+            .description("Raw yt-dlp files archived")
+            .register(meterRegistry);
+        this.reuses = Counter.builder("extraction.artifacts.reuses")
+            .description("Fetches served from archived artifacts instead of yt-dlp")
+            .register(meterRegistry);
+        this.evictions = Counter.builder("extraction.artifacts.evictions")
+            .description("Artifacts removed for age or to stay within max-bytes")
+            .register(meterRegistry);
+        Gauge.builder("extraction.artifacts.bytes", totalBytes, AtomicLong::get)
+            .description("Compressed size of all archived artifacts")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Indexes the artifacts already on disk.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void scan() {
+        if (!enabled || !Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root, 3)) {
+            paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX) && Files.isRegularFile(path))
+                .forEach(path -> {
+                    Artifact artifact = fromPath(path);
+                    if (artifact != null) {
+                        track(artifact);
+                    }
+                });
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("[Artifacts] Failed to index {}: {}", root, e.getMessage());
+        }
+        logger.info("[Artifacts] Indexed {} artifacts ({} bytes) in {}", size(), totalBytes.get(), root);
+    }
+
+    /**
+     * Compresses every {@code <youtubeVideoId>.<type>} file in {@code directory} into today's
+     * artifacts for the video, replacing any written earlier the same day.
+     */
+    public int archive(String youtubeVideoId, Path directory) {
+        if (!enabled) {
+            return 0;
+        }
+        String prefix = youtubeVideoId + ".";
+        int archived = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, prefix + "*")) {
+            Path target = Files.createDirectories(root.resolve(youtubeVideoId).resolve(today().toString()));
+            for (Path file : files) {
+                String type = file.getFileName().toString().substring(prefix.length());
+                if (type.isEmpty() || !Files.isRegularFile(file)) {
+                    continue;
+                }
+                Path artifactPath = target.resolve(type + SUFFIX);
+                Path temporary = Files.createTempFile(target, type, ".tmp");
+                try {
+                    try (InputStream in = Files.newInputStream(file);
+                         OutputStream out = new GZIPOutputStream(Files.newOutputStream(temporary))) {
+                        in.transferTo(out);
+                    }
+                    Files.move(temporary, artifactPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(temporary);
+                }
+                track(new Artifact(artifactPath, youtubeVideoId, type, today(), Files.size(artifactPath), Instant.now()));
+                archived++;
+            }
+            writes.increment(archived);
+            logger.info("[Artifacts] Archived {} files of {}", archived, youtubeVideoId);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("[Artifacts] Failed to archive files of {}: {}", youtubeVideoId, e.getMessage());
+        }
+        return archived;
+    }
+
+    /**
+     * Decompresses the newest fetch of the video that is at most {@code maxAge} old into
+     * {@code directory}, under the file names yt-dlp would have written, and returns its fetch date.
+     * Fetches without an info JSON are skipped.
+     */
+    public Optional<LocalDate> restore(String youtubeVideoId, Path directory, Duration maxAge) {
+        if (!enabled || maxAge.isZero() || maxAge.isNegative()) {
+            return Optional.empty();
+        }
+        LocalDate oldest = LocalDate.ofInstant(Instant.now().minus(maxAge), ZoneOffset.UTC);
+        List<Artifact> artifacts = artifactsOf(youtubeVideoId);
+        Optional<LocalDate> fetchedOn = artifacts.stream()
+            .filter(artifact -> INFO_JSON.equals(artifact.type()))
+            .map(Artifact::fetchedOn)
+            .filter(date -> !date.isBefore(oldest))
+            .max(Comparator.naturalOrder());
+        if (fetchedOn.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Artifact> fetch = artifacts.stream()
+            .filter(artifact -> artifact.fetchedOn().equals(fetchedOn.get()))
+            .toList();
+        try {
+            for (Artifact artifact : fetch) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(artifact.path()))) {
+                    Files.copy(in, directory.resolve(youtubeVideoId + "." + artifact.type()), StandardCopyOption.REPLACE_EXISTING);
+                }
+                touch(artifact);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("[Artifacts] Failed to restore {} fetch of {}: {}", fetchedOn.get(), youtubeVideoId, e.getMessage());
+            return Optional.empty();
+        }
+        reuses.increment();
+        logger.info("[Artifacts] Restored {} files of {} fetched on {}", fetch.size(), youtubeVideoId, fetchedOn.get());
+        return fetchedOn;
+    }
+
+    @Scheduled(fixedDelayString = "${extraction.artifacts.eviction-interval:PT1H}")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate expiredBefore = LocalDate.ofInstant(Instant.now().minus(ttl), ZoneOffset.UTC);
+        int expired = 0;
+        int evicted = 0;
+        for (Artifact artifact : allArtifacts()) {
+            if (artifact.fetchedOn().isBefore(expiredBefore) && remove(artifact)) {
+                expired++;
+            }
+        }
+        if (totalBytes.get() > maxBytes) {
+            List<Artifact> leastRecentlyUsed = new ArrayList<>(allArtifacts());
+            leastRecentlyUsed.sort(Comparator.comparing(Artifact::lastAccessedAt));
+            for (Artifact artifact : leastRecentlyUsed) {
+                if (totalBytes.get() <= maxBytes) {
+                    break;
+                }
+                if (remove(artifact)) {
+                    evicted++;
+                }
+            }
+        }
+        if (expired + evicted > 0) {
+            evictions.increment(expired + evicted);
+            logger.info("[Artifacts] Sweep: {} expired, {} evicted, {} bytes remaining", expired, evicted, totalBytes.get());
+        }
+    }
+
+    public long totalBytes() {
+        return totalBytes.get();
+    }
+
+    public int size() {
+        return index.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private LocalDate today() {
+        return LocalDate.ofInstant(Instant.now(), ZoneOffset.UTC);
+    }
+
+    private List<Artifact> artifactsOf(String youtubeVideoId) {
+        Map<Path, Artifact> artifacts = index.get(youtubeVideoId);
+        return artifacts != null ? List.copyOf(artifacts.values()) : List.of();
+    }
+
+    private List<Artifact> allArtifacts() {
+        return index.values().stream().flatMap(artifacts -> artifacts.values().stream()).toList();
+    }
+
+    // Per-video maps are only changed inside compute, so one is never dropped while being added to
+    private void track(Artifact artifact) {
+        Artifact[] previous = new Artifact[1];
+        index.compute(artifact.youtubeVideoId(), (id, artifacts) -> {
+            Map<Path, Artifact> updated = artifacts != null ? artifacts : new ConcurrentHashMap<>();
+            previous[0] = updated.put(artifact.path(), artifact);
+            return updated;
+        });
+        totalBytes.addAndGet(artifact.sizeBytes() - (previous[0] != null ? previous[0].sizeBytes() : 0));
+    }
+
+    private void touch(Artifact artifact) throws IOException {
+        Instant now = Instant.now();
+        Files.setLastModifiedTime(artifact.path(), FileTime.from(now));
+        index.computeIfPresent(artifact.youtubeVideoId(), (id, artifacts) -> {
+            artifacts.replace(artifact.path(), artifact, artifact.withLastAccessedAt(now));
+            return artifacts;
+        });
+    }
+
+    private boolean remove(Artifact artifact) {
+        boolean[] removed = {false};
+        index.computeIfPresent(artifact.youtubeVideoId(), (id, artifacts) -> {
+            removed[0] = artifacts.remove(artifact.path(), artifact);
+            return artifacts.isEmpty() ? null : artifacts;
+        });
+        if (!removed[0]) {
+            return false;
+        }
+        totalBytes.addAndGet(-artifact.sizeBytes());
+        try {
+            Files.deleteIfExists(artifact.path());
+            // Drop the date and video directories once they are empty
+            Path fetchDirectory = artifact.path().getParent();
+            deleteIfEmpty(fetchDirectory);
+            deleteIfEmpty(fetchDirectory.getParent());
+        } catch (IOException e) {
+            logger.warn("[Artifacts] Failed to delete {}: {}", artifact.path(), e.getMessage());
+        }
+        return true;
+    }
+
+    private static void deleteIfEmpty(Path directory) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            if (entries.iterator().hasNext()) {
+                return;
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    // <root>/<youtubeVideoId>/<fetch date>/<type>.gz
+    private Artifact fromPath(Path path) {
+        Path relative = root.relativize(path);
+        if (relative.getNameCount() != 3) {
+            return null;
+        }
+        String fileName = relative.getName(2).toString();
+        try {
+            return new Artifact(path, relative.getName(0).toString(),
+                fileName.substring(0, fileName.length() - SUFFIX.length()),
+                LocalDate.parse(relative.getName(1).toString()),
+                Files.size(path), Files.getLastModifiedTime(path).toInstant());
+        } catch (DateTimeParseException | IOException e) {
+            return null;
+        }
+    }
+
+    record Artifact(Path path, String youtubeVideoId, String type, LocalDate fetchedOn, long sizeBytes,
+                    Instant lastAccessedAt) {
+        Artifact withLastAccessedAt(Instant lastAccessedAt) {
+            return new Artifact(path, youtubeVideoId, type, fetchedOn, sizeBytes, lastAccessedAt);
+        }
+    }
+}
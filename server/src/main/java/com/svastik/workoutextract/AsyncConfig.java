@@ -1,10 +1,70 @@
 package com.svastik.workoutextract;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
  
 @Configuration
 @EnableAsync
 public class AsyncConfig {
-    // Additional async executor configuration can be added here if needed
-} 
\ No newline at end of file
+
+    /**
+     * Runs extraction jobs on a fixed number of threads with a bounded queue. Submissions beyond
+     * the queue capacity are rejected with a TaskRejectedException instead of piling up in memory.
+     * With spring.threads.virtual.enabled the workers are virtual threads, so the concurrency can be
+     * raised well beyond what platform threads allow for this blocking pipeline.
+     *
+     * Queued jobs are ordered by priority with aging (see ExtractionTaskQueue), and
+     * reserved-interactive-workers threads never run bulk jobs.
+     */
+    @Bean(name = "extractionExecutor")
+    public ThreadPoolTaskExecutor extractionExecutor(
+            @Value("${extraction.executor.concurrency:4}") int concurrency,
+            @Value("${extraction.executor.queue-capacity:20}") int queueCapacity,
+            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+            @Value("${extraction.scheduler.reserved-interactive-workers:1}") int reservedInteractiveWorkers,
+            @Value("${extraction.scheduler.interactive-head-start:PT5M}") Duration interactiveHeadStart,
+            MeterRegistry meterRegistry) {
+        ThreadPoolTaskExecutor executor = buildExtractionExecutor(concurrency, queueCapacity, virtualThreads,
+            reservedInteractiveWorkers, interactiveHeadStart);
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "extraction", List.of())
+            .bindTo(meterRegistry);
+        return executor;
+    }
+
+    static ThreadPoolTaskExecutor buildExtractionExecutor(int concurrency, int queueCapacity, boolean virtualThreads) {
+        return buildExtractionExecutor(concurrency, queueCapacity, virtualThreads, 0, Duration.ZERO);
+    }
+
+    static ThreadPoolTaskExecutor buildExtractionExecutor(int concurrency, int queueCapacity, boolean virtualThreads,
+                                                          int reservedInteractiveWorkers, Duration interactiveHeadStart) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor() {
+            @Override
+            protected BlockingQueue<Runnable> createQueue(int capacity) {
+                return new ExtractionTaskQueue(capacity, concurrency - reservedInteractiveWorkers, interactiveHeadStart);
+            }
+        };
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(queueCapacity);
+        if (virtualThreads) {
+            executor.setThreadFactory(Thread.ofVirtual().name("extract-vt-", 0).factory());
+        } else {
+            executor.setThreadNamePrefix("extract-");
+        }
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        // Every submission then goes through the queue, which is where priorities are applied
+        executor.setPrestartAllCoreThreads(true);
+        executor.initialize();
+        return executor;
+    }
+}
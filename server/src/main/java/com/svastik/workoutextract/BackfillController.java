@@ -0,0 +1,79 @@
+package com.svastik.workoutextract;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Admin endpoints of the re-extraction backfill. Every request needs the X-Admin-Token header, see
+ * {@link AdminTokenGuard}.
+ */
+@RestController
+@RequestMapping("/api/v1/admin/backfill")
+public class BackfillController {
+    private final BackfillService backfillService;
+    private final AdminTokenGuard adminTokenGuard;
+    private final int defaultParallelism;
+    private final double defaultRatePerSecond;
+
+    public BackfillController(
+            BackfillService backfillService,
+            AdminTokenGuard adminTokenGuard,
+            @Value("${extraction.backfill.parallelism:2}") int defaultParallelism,
+            @Value("${extraction.backfill.rate-per-second:1.0}") double defaultRatePerSecond) {
+        this.backfillService = backfillService;
+        this.adminTokenGuard = adminTokenGuard;
+        this.defaultParallelism = defaultParallelism;
+        this.defaultRatePerSecond = defaultRatePerSecond;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> start(
+            @RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+            @RequestParam(required = false) Integer parallelism,
+            @RequestParam(required = false) Double ratePerSecond,
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "0") long limit) {
+        if (!adminTokenGuard.authorized(token)) {
+            return AdminTokenGuard.forbidden();
+        }
+        BackfillService.Options options;
+        try {
+            options = new BackfillService.Options(
+                parallelism != null ? parallelism : defaultParallelism,
+                ratePerSecond != null ? ratePerSecond : defaultRatePerSecond,
+                afterId, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(backfillService.start(options));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public ResponseEntity<?> status(@RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token) {
+        if (!adminTokenGuard.authorized(token)) {
+            return AdminTokenGuard.forbidden();
+        }
+        return backfillService.status()
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No backfill has run")));
+    }
+
+    @DeleteMapping
+    public ResponseEntity<?> cancel(@RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token) {
+        if (!adminTokenGuard.authorized(token)) {
+            return AdminTokenGuard.forbidden();
+        }
+        if (!backfillService.cancel()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "No backfill is running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("status", "CANCELLING"));
+    }
+}
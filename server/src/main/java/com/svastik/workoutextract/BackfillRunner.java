@@ -0,0 +1,58 @@
+package com.svastik.workoutextract;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Runs a backfill from the command line and exits:
+ * {@code java -jar workoutextract.jar --backfill [--backfill.parallelism=4] [--backfill.rate-per-second=2]
+ * [--backfill.after-id=0] [--backfill.limit=0]}. The exit code is 0 when every video was updated
+ * or skipped, 1 otherwise.
+ */
+@Component
+public class BackfillRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BackfillRunner.class);
+
+    private final BackfillService backfillService;
+    private final ApplicationContext applicationContext;
+
+    @Value("${extraction.backfill.parallelism:2}")
+    private int defaultParallelism = 2;
+
+    @Value("${extraction.backfill.rate-per-second:1.0}")
+    private double defaultRatePerSecond = 1.0;
+
+    public BackfillRunner(BackfillService backfillService, ApplicationContext applicationContext) {
+        this.backfillService = backfillService;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("backfill")) {
+            return;
+        }
+        BackfillService.Options options = new BackfillService.Options(
+            (int) option(args, "backfill.parallelism", defaultParallelism),
+            option(args, "backfill.rate-per-second", defaultRatePerSecond),
+            (long) option(args, "backfill.after-id", 0),
+            (long) option(args, "backfill.limit", 0));
+        BackfillService.Status status = backfillService.runToCompletion(options);
+        logger.info("[Backfill] Finished: {}", status);
+        int exitCode = "COMPLETE".equals(status.state()) && status.failed() == 0 ? 0 : 1;
+        System.exit(SpringApplication.exit(applicationContext, () -> exitCode));
+    }
+
+    private static double option(ApplicationArguments args, String name, double defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : Double.parseDouble(values.get(0));
+    }
+}
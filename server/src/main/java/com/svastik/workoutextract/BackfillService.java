@@ -0,0 +1,352 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Re-extracts workouts of videos already in the catalog from their archived yt-dlp output, e.g.
+ * after a prompt or cleaning change. Videos are read in keyset (id) order a page at a time; each
+ * page is extracted with bounded parallelism and a global rate limit, and its results are written
+ * back in JDBC batches before the cursor moves on, so {@code lastId} of a stopped run is where a
+ * new run can resume. Videos without archived artifacts are skipped rather than fetched from
+ * YouTube. While interactive extraction jobs are running or queued on this node the backfill
+ * pauses, so it never competes with them for yt-dlp, Gemini or database capacity.
+ *
+ * One run at a time, started from BackfillController or with --backfill on the command line.
+ */
+@Component
+public class BackfillService {
+    private static final Logger logger = LoggerFactory.getLogger(BackfillService.class);
+    private static final String UPDATE_SQL = "UPDATE videos SET workout_data = CAST(? AS jsonb) WHERE id = ?";
+    private static final int RECENT_FAILURES = 20;
+    // Artifacts of any age are good enough for a backfill
+    private static final Duration ANY_AGE = Duration.ofDays(365L * 100);
+
+    private final VideoRepository videoRepository;
+    private final ArtifactStore artifactStore;
+    private final ScratchDirectories scratchDirectories;
+    private final YtDlpInfoReader ytDlpInfoReader;
+    private final TranscriptReader transcriptReader;
+    private final RoutineCommentParser routineCommentParser;
+    private final WorkoutAnalyzer workoutAnalyzer;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final ExtractionLoadMonitor extractionLoadMonitor;
+    private final Counter updatedCounter;
+    private final Counter skippedCounter;
+    private final Counter failedCounter;
+    private final Counter pauseCounter;
+    private final AtomicReference<Run> current = new AtomicReference<>();
+
+    @Value("${extraction.backfill.page-size:200}")
+    private int pageSize = 200;
+
+    @Value("${extraction.backfill.batch-size:50}")
+    private int batchSize = 50;
+
+    // How long to wait before checking again whether interactive jobs have drained
+    @Value("${extraction.backfill.interactive-pause:PT5S}")
+    private Duration interactivePause = Duration.ofSeconds(5);
+
+    @Value("${gemini.deadline:PT3M}")
+    private Duration geminiDeadline = Duration.ofMinutes(3);
+
+    public BackfillService(
+            VideoRepository videoRepository,
+            ArtifactStore artifactStore,
+            ScratchDirectories scratchDirectories,
+            YtDlpInfoReader ytDlpInfoReader,
+            TranscriptReader transcriptReader,
+            RoutineCommentParser routineCommentParser,
+            WorkoutAnalyzer workoutAnalyzer,
+            ObjectMapper objectMapper,
+            JdbcTemplate jdbcTemplate,
+            ExtractionLoadMonitor extractionLoadMonitor,
+            MeterRegistry meterRegistry) {
+        this.videoRepository = videoRepository;
+        this.artifactStore = artifactStore;
+        this.scratchDirectories = scratchDirectories;
+        this.ytDlpInfoReader = ytDlpInfoReader;
+        this.transcriptReader = transcriptReader;
+        this.routineCommentParser = routineCommentParser;
+        this.workoutAnalyzer = workoutAnalyzer;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.extractionLoadMonitor = extractionLoadMonitor;
+        this.updatedCounter = counter(meterRegistry, "updated");
+        this.skippedCounter = counter(meterRegistry, "skipped");
+        this.failedCounter = counter(meterRegistry, "failed");
+        this.pauseCounter = Counter.builder("extraction.backfill.pauses")
+            .description("Times the backfill waited for interactive extraction jobs to drain")
+            .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("extraction.backfill.videos")
+            .description("Videos processed by the re-extraction backfill")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Starts a run on a background thread.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public Status start(Options options) {
+        Run run = begin(options);
+        Thread.ofPlatform().name("backfill").daemon().start(() -> execute(run));
+        return run.status();
+    }
+
+    /**
+     * Runs a backfill on the calling thread and returns its final status.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public Status runToCompletion(Options options) {
+        Run run = begin(options);
+        execute(run);
+        return run.status();
+    }
+
+    public Optional<Status> status() {
+        return Optional.ofNullable(current.get()).map(Run::status);
+    }
+
+    /**
+     * Stops the current run after the page in progress; returns false if none is running.
+     */
+    public boolean cancel() {
+        Run run = current.get();
+        if (run == null || run.finishedAt != null) {
+            return false;
+        }
+        run.cancelled = true;
+        return true;
+    }
+
+    private synchronized Run begin(Options options) {
+        Run running = current.get();
+        if (running != null && running.finishedAt == null) {
+            throw new IllegalStateException("A backfill is already running");
+        }
+        long remaining = videoRepository.countAfter(options.afterId());
+        long total = options.limit() > 0 ? Math.min(options.limit(), remaining) : remaining;
+        Run run = new Run(options, total);
+        current.set(run);
+        logger.info("[Backfill] Starting over {} videos after id {} (parallelism {}, {} videos/s)",
+            total, options.afterId(), options.parallelism(), options.ratePerSecond());
+        return run;
+    }
+
+    private void execute(Run run) {
+        Options options = run.options;
+        Semaphore permits = new Semaphore(options.parallelism());
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            while (!run.cancelled && run.processed() < run.total) {
+                int pageLimit = (int) Math.min(pageSize, run.total - run.processed());
+                List<Object[]> page = videoRepository.findKeysAfter(run.lastId.get(), PageRequest.of(0, pageLimit));
+                if (page.isEmpty()) {
+                    break;
+                }
+                List<Future<?>> tasks = new ArrayList<>();
+                for (Object[] key : page) {
+                    long videoId = ((Number) key[0]).longValue();
+                    String youtubeVideoId = (String) key[1];
+                    awaitInteractiveIdle(run);
+                    run.pace();
+                    permits.acquire();
+                    tasks.add(executor.submit(() -> {
+                        try {
+                            process(run, videoId, youtubeVideoId);
+                        } finally {
+                            permits.release();
+                        }
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+                flush(run);
+                run.lastId.set(((Number) page.get(page.size() - 1)[0]).longValue());
+                Status status = run.status();
+                logger.info("[Backfill] {}/{} videos ({} updated, {} skipped, {} failed), {} videos/s, ETA {}s, last id {}",
+                    status.processed(), status.total(), status.updated(), status.skipped(), status.failed(),
+                    String.format("%.2f", status.videosPerSecond()), status.etaSeconds(), status.lastId());
+            }
+            run.state = run.cancelled ? "CANCELLED" : "COMPLETE";
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("[Backfill] Run stopped after id {}", run.lastId.get(), e);
+            run.state = "FAILED";
+            run.error = e.getMessage();
+        } finally {
+            run.finishedAt = Instant.now();
+            Status status = run.status();
+            logger.info("[Backfill] {}: {} updated, {} skipped, {} failed; resume after id {}",
+                status.state(), status.updated(), status.skipped(), status.failed(), status.lastId());
+        }
+    }
+
+    private void process(Run run, long videoId, String youtubeVideoId) {
+        try (ScratchDirectories.ScratchDirectory scratch = scratchDirectories.create(UUID.randomUUID())) {
+            Optional<LocalDate> fetchedOn = artifactStore.restore(youtubeVideoId, scratch.path(), ANY_AGE);
+            if (fetchedOn.isEmpty()) {
+                run.skipped.incrementAndGet();
+                skippedCounter.increment();
+                return;
+            }
+            YtDlpInfoReader.VideoInfo videoInfo = ytDlpInfoReader.read(
+                scratch.resolve(youtubeVideoId + ".info.json"), scratch.resolve(youtubeVideoId + ".comments.json"));
+            Path transcriptPath = VideoExtractionService.locateTranscript(scratch.path(), youtubeVideoId);
+            String transcript = transcriptReader.read(transcriptPath);
+            Map<String, Object> workout = routineCommentParser.parse(videoInfo.goldenComments()).orElse(null);
+            if (workout == null) {
+                workout = workoutAnalyzer.analyze(videoInfo.title(), videoInfo.uploader(), videoInfo.goldenComments(),
+                    transcript, Instant.now().plus(geminiDeadline)).workout();
+            }
+            run.pending.add(new Object[]{objectMapper.writeValueAsString(workout), videoId});
+            if (run.pending.size() >= batchSize) {
+                flush(run);
+            }
+        } catch (Exception e) {
+            logger.warn("[Backfill] Failed to re-extract {}: {}", youtubeVideoId, e.getMessage());
+            run.failed.incrementAndGet();
+            failedCounter.increment();
+            run.recordFailure(youtubeVideoId, e.getMessage());
+        }
+    }
+
+    private void flush(Run run) {
+        synchronized (run) {
+            while (!run.pending.isEmpty()) {
+                List<Object[]> batch = new ArrayList<>(batchSize);
+                for (Object[] row; batch.size() < batchSize && (row = run.pending.poll()) != null; ) {
+                    batch.add(row);
+                }
+                jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+                run.updated.addAndGet(batch.size());
+                updatedCounter.increment(batch.size());
+            }
+        }
+    }
+
+    private void awaitInteractiveIdle(Run run) throws InterruptedException {
+        // Bulk jobs, such as a channel ingestion draining, do not pause the backfill
+        while (!run.cancelled && extractionLoadMonitor.interactiveJobs() > 0) {
+            pauseCounter.increment();
+            Thread.sleep(interactivePause.toMillis());
+        }
+    }
+
+    /**
+     * @param parallelism   videos extracted concurrently
+     * @param ratePerSecond maximum videos started per second; 0 for no limit
+     * @param afterId       resume after this video id (0 for the whole catalog)
+     * @param limit         maximum videos to process; 0 for no limit
+     */
+    public record Options(int parallelism, double ratePerSecond, long afterId, long limit) {
+        public Options {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("parallelism must be at least 1");
+            }
+            if (ratePerSecond < 0 || afterId < 0 || limit < 0) {
+                throw new IllegalArgumentException("ratePerSecond, afterId and limit must not be negative");
+            }
+        }
+    }
+
+    public record Failure(String youtubeVideoId, String error) {
+    }
+
+    public record Status(String state, Instant startedAt, Instant finishedAt, long total, long processed,
+                         long updated, long skipped, long failed, long lastId, double videosPerSecond,
+                         Long etaSeconds, List<Failure> recentFailures, String error) {
+    }
+
+    private static final class Run {
+        private final Options options;
+        private final long total;
+        private final Instant startedAt = Instant.now();
+        private final AtomicLong lastId;
+        private final AtomicLong updated = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final ConcurrentLinkedDeque<Object[]> pending = new ConcurrentLinkedDeque<>();
+        private final ConcurrentLinkedDeque<Failure> failures = new ConcurrentLinkedDeque<>();
+        private long nextStartNanos = System.nanoTime();
+        private volatile boolean cancelled;
+        private volatile String state = "RUNNING";
+        private volatile String error;
+        private volatile Instant finishedAt;
+
+        Run(Options options, long total) {
+            this.options = options;
+            this.total = total;
+            this.lastId = new AtomicLong(options.afterId());
+        }
+
+        // Written rows still in pending count as processed once flushed, so progress never runs ahead
+        long processed() {
+            return updated.get() + pending.size() + skipped.get() + failed.get();
+        }
+
+        // Spaces video starts evenly at the configured rate
+        void pace() throws InterruptedException {
+            if (options.ratePerSecond() <= 0) {
+                return;
+            }
+            long interval = (long) (1_000_000_000L / options.ratePerSecond());
+            long now = System.nanoTime();
+            long startAt = Math.max(now, nextStartNanos);
+            nextStartNanos = startAt + interval;
+            if (startAt > now) {
+                Thread.sleep(Duration.ofNanos(startAt - now));
+            }
+        }
+
+        void recordFailure(String youtubeVideoId, String message) {
+            failures.addLast(new Failure(youtubeVideoId, message));
+            while (failures.size() > RECENT_FAILURES) {
+                failures.pollFirst();
+            }
+        }
+
+        Status status() {
+            long processed = processed();
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            double seconds = Math.max(0.001, Duration.between(startedAt, end).toMillis() / 1000.0);
+            double rate = processed / seconds;
+            Long eta = finishedAt == null && rate > 0 ? (long) Math.ceil((total - processed) / rate) : null;
+            return new Status(state, startedAt, finishedAt, total, processed, updated.get(), skipped.get(),
+                failed.get(), lastId.get(), rate, eta, List.copyOf(failures), error);
+        }
+    }
+}
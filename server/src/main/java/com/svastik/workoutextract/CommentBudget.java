@@ -0,0 +1,23 @@
+package com.svastik.workoutextract;
+
+/**
+ * How many top-sorted comments yt-dlp fetches for a video. The first pass fetches {@code budget};
+ * when that slice is full but holds no golden comment, comments are fetched once more with
+ * {@code fallbackBudget}.
+ */
+record CommentBudget(int budget, int fallbackBudget) {
+
+    boolean shouldWiden(YtDlpInfoReader.VideoInfo firstPass) {
+        return firstPass.goldenComments().isEmpty()
+            && firstPass.commentCount() >= budget
+            && fallbackBudget > budget;
+    }
+
+    /**
+     * Whether the widened fetch actually replaced the first pass. A failed re-fetch leaves the
+     * first-pass info JSON in place, so only a larger comment count counts as widened.
+     */
+    static boolean widened(YtDlpInfoReader.VideoInfo firstPass, YtDlpInfoReader.VideoInfo refetched) {
+        return refetched.hasComments() && refetched.commentCount() > firstPass.commentCount();
+    }
+}
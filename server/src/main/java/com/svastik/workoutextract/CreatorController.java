@@ -4,7 +4,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @RestController
@@ -12,10 +14,15 @@ import java.util.stream.Collectors;
 public class CreatorController {
     private final CreatorRepository creatorRepository;
     private final VideoRepository videoRepository;
+    private final CreatorIngestionService creatorIngestionService;
+    private final AdminTokenGuard adminTokenGuard;
 
-    public CreatorController(CreatorRepository creatorRepository, VideoRepository videoRepository) {
+    public CreatorController(CreatorRepository creatorRepository, VideoRepository videoRepository,
+                             CreatorIngestionService creatorIngestionService, AdminTokenGuard adminTokenGuard) {
         this.creatorRepository = creatorRepository;
         this.videoRepository = videoRepository;
+        this.creatorIngestionService = creatorIngestionService;
+        this.adminTokenGuard = adminTokenGuard;
     }
 
     @GetMapping
@@ -38,4 +45,41 @@ public class CreatorController {
         List<Video> videos = videoRepository.findAllByCreatorId(id);
         return ResponseEntity.ok(videos);
     }
-} 
\ No newline at end of file
+
+    /**
+     * Queues extraction of every video of a channel or playlist that is not in the catalog yet.
+     * Returns the batch with its initial progress; poll GET /ingest/{batchId} for updates. Like the
+     * backfill endpoints, both need the X-Admin-Token header and are disabled without a token.
+     */
+    @PostMapping("/ingest")
+    public ResponseEntity<?> ingest(
+            @RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+            @RequestBody Map<String, String> request) {
+        if (!adminTokenGuard.authorized(token)) {
+            return AdminTokenGuard.forbidden();
+        }
+        String url = request.get("url");
+        if (url == null || url.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Missing or empty url field"));
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(creatorIngestionService.ingest(url));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/ingest/{batchId}")
+    public ResponseEntity<?> getIngestionProgress(
+            @RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+            @PathVariable UUID batchId) {
+        if (!adminTokenGuard.authorized(token)) {
+            return AdminTokenGuard.forbidden();
+        }
+        return creatorIngestionService.progress(batchId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Batch not found")));
+    }
+}
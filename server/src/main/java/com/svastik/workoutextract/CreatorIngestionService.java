@@ -0,0 +1,286 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Onboards a whole channel or playlist in one request. A single {@code yt-dlp --flat-playlist} call
+ * lists the video IDs without fetching any video; IDs already in the catalog or being extracted
+ * are skipped and the rest become BULK extraction jobs of one {@link IngestionBatch}, whose
+ * progress is aggregated from the jobs' statuses.
+ *
+ * With the durable queue the PENDING rows are picked up by the workers of every node. Otherwise the
+ * jobs are fed to the local executor as it has room, keeping queue-headroom slots free so
+ * interactive requests are not rejected while a large batch drains; batch jobs still PENDING
+ * after a restart are fed again.
+ */
+@Service
+public class CreatorIngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(CreatorIngestionService.class);
+    // Channel (@handle, /channel/, /c/, /user/, optionally with a tab) or playlist URLs
+    private static final Pattern CHANNEL_URL = Pattern.compile(
+        "^https?://(?:www\\.|m\\.)?youtube\\.com/(@[\\w.-]+|channel/[\\w-]+|c/[\\w.-]+|user/[\\w.-]+)(/(?:videos|shorts|streams))?/?(?:\\?.*)?$");
+    private static final Pattern PLAYLIST_URL = Pattern.compile(
+        "^https?://(?:www\\.|m\\.)?youtube\\.com/(?:playlist|watch)\\?(?:.*&)?list=([\\w-]+).*$");
+    private static final Pattern VIDEO_ID = Pattern.compile("^[a-zA-Z0-9_-]{11}$");
+
+    private final VideoRepository videoRepository;
+    private final ExtractionJobRepository extractionJobRepository;
+    private final IngestionBatchRepository ingestionBatchRepository;
+    private final VideoExtractionService videoExtractionService;
+    private final ProcessSupervisor processSupervisor;
+    private final ScratchDirectories scratchDirectories;
+    private final ThreadPoolTaskExecutor extractionExecutor;
+    private final ConcurrentLinkedDeque<UUID> backlog = new ConcurrentLinkedDeque<>();
+    private final Counter queuedCounter;
+    private final Counter skippedCounter;
+
+    @Value("${ytdlp.binary:yt-dlp}")
+    private String ytDlpBinary = "yt-dlp";
+
+    @Value("${extraction.ingest.list-timeout:PT2M}")
+    private Duration listTimeout = Duration.ofMinutes(2);
+
+    @Value("${extraction.ingest.max-videos:1000}")
+    private int maxVideos = 1000;
+
+    // Executor queue slots left free for interactive requests
+    @Value("${extraction.ingest.queue-headroom:5}")
+    private int queueHeadroom = 5;
+
+    @Value("${extraction.queue.durable:false}")
+    private boolean durableQueue = false;
+
+    @Value("${extraction.inflight.stale-after:PT10M}")
+    private Duration inFlightStaleAfter = Duration.ofMinutes(10);
+
+    public CreatorIngestionService(
+            VideoRepository videoRepository,
+            ExtractionJobRepository extractionJobRepository,
+            IngestionBatchRepository ingestionBatchRepository,
+            VideoExtractionService videoExtractionService,
+            ProcessSupervisor processSupervisor,
+            ScratchDirectories scratchDirectories,
+            @Qualifier("extractionExecutor") ThreadPoolTaskExecutor extractionExecutor,
+            MeterRegistry meterRegistry) {
+        this.videoRepository = videoRepository;
+        this.extractionJobRepository = extractionJobRepository;
+        this.ingestionBatchRepository = ingestionBatchRepository;
+        this.videoExtractionService = videoExtractionService;
+        this.processSupervisor = processSupervisor;
+        this.scratchDirectories = scratchDirectories;
+        this.extractionExecutor = extractionExecutor;
+        this.queuedCounter = Counter.builder("extraction.ingest.videos")
+            .description("Videos of ingested channels and playlists")
+            .tag("result", "queued")
+            .register(meterRegistry);
+        this.skippedCounter = Counter.builder("extraction.ingest.videos")
+            .description("Videos of ingested channels and playlists")
+            .tag("result", "skipped")
+            .register(meterRegistry);
+        Gauge.builder("extraction.ingest.backlog", backlog, ConcurrentLinkedDeque::size)
+            .description("Batch jobs waiting to be handed to the local executor")
+            .register(meterRegistry);
+    }
+
+    /**
+     * The yt-dlp URL listing the videos of a channel or playlist URL, or null if it is neither.
+     * Channel URLs without a tab list the channel's uploads.
+     */
+    static String listingUrl(String url) {
+        if (url == null) {
+            return null;
+        }
+        String trimmed = url.trim();
+        Matcher playlist = PLAYLIST_URL.matcher(trimmed);
+        if (playlist.matches()) {
+            return "https://www.youtube.com/playlist?list=" + playlist.group(1);
+        }
+        Matcher channel = CHANNEL_URL.matcher(trimmed);
+        if (channel.matches()) {
+            String tab = channel.group(2) != null ? channel.group(2) : "/videos";
+            return "https://www.youtube.com/" + channel.group(1) + tab;
+        }
+        return null;
+    }
+
+    /**
+     * Lists the videos of the channel or playlist and queues extraction jobs for the new ones.
+     *
+     * @throws IllegalArgumentException if the URL is not a channel or playlist URL
+     * @throws IllegalStateException if yt-dlp cannot list the videos
+     */
+    public Progress ingest(String url) {
+        String listingUrl = listingUrl(url);
+        if (listingUrl == null) {
+            throw new IllegalArgumentException("Not a YouTube channel or playlist URL");
+        }
+        List<String> videoIds = listVideoIds(listingUrl);
+
+        Set<String> skip = new HashSet<>();
+        if (!videoIds.isEmpty()) {
+            skip.addAll(videoRepository.findExistingYoutubeVideoIds(videoIds));
+            skip.addAll(extractionJobRepository.findActiveYoutubeVideoIds(videoIds, Instant.now().minus(inFlightStaleAfter)));
+        }
+        List<String> newIds = videoIds.stream().filter(id -> !skip.contains(id)).toList();
+
+        IngestionBatch batch = ingestionBatchRepository.save(IngestionBatch.builder()
+            .sourceUrl(listingUrl)
+            .videosFound(videoIds.size())
+            .videosSkipped(videoIds.size() - newIds.size())
+            .videosQueued(newIds.size())
+            .build());
+        List<ExtractionJob> jobs = new ArrayList<>(newIds.size());
+        for (String videoId : newIds) {
+            ExtractionJob job = new ExtractionJob();
+            job.setYoutubeVideoId(videoId);
+            job.setStatus("PENDING");
+            job.setProgress(0);
+            job.setPriority(JobPriority.BULK);
+            job.setBatchId(batch.getId());
+            jobs.add(job);
+        }
+        List<ExtractionJob> saved = extractionJobRepository.saveAll(jobs);
+        queuedCounter.increment(saved.size());
+        skippedCounter.increment(batch.getVideosSkipped());
+        logger.info("[Ingest] Batch {} for {}: {} videos found, {} skipped, {} queued", batch.getId(), listingUrl,
+            batch.getVideosFound(), batch.getVideosSkipped(), saved.size());
+
+        if (!durableQueue) {
+            saved.forEach(job -> backlog.addLast(job.getId()));
+            feed();
+        }
+        return progress(batch);
+    }
+
+    public Optional<Progress> progress(UUID batchId) {
+        return ingestionBatchRepository.findById(batchId).map(this::progress);
+    }
+
+    /**
+     * Hands backlog jobs to the local executor while its queue has more than queue-headroom free
+     * slots.
+     */
+    @Scheduled(fixedDelayString = "${extraction.ingest.feed-interval:PT5S}")
+    public void feed() {
+        if (durableQueue) {
+            return;
+        }
+        int fed = 0;
+        while (extractionExecutor.getThreadPoolExecutor().getQueue().remainingCapacity() > queueHeadroom) {
+            UUID jobId = backlog.pollFirst();
+            if (jobId == null) {
+                break;
+            }
+            try {
+                videoExtractionService.processWorkoutExtraction(jobId, JobPriority.BULK);
+                fed++;
+            } catch (TaskRejectedException e) {
+                backlog.addFirst(jobId);
+                break;
+            }
+        }
+        if (fed > 0) {
+            logger.info("[Ingest] Queued {} batch jobs, {} waiting", fed, backlog.size());
+        }
+    }
+
+    /**
+     * Picks up batch jobs that were still waiting when the process last stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        if (durableQueue) {
+            return;
+        }
+        List<UUID> pending = extractionJobRepository.findPendingBatchJobIds();
+        if (!pending.isEmpty()) {
+            backlog.addAll(pending);
+            logger.info("[Ingest] Resuming {} pending batch jobs", pending.size());
+            feed();
+        }
+    }
+
+    int backlogSize() {
+        return backlog.size();
+    }
+
+    private List<String> listVideoIds(String listingUrl) {
+        List<String> command = List.of(
+            ytDlpBinary,
+            "--flat-playlist",
+            "--print", "id",
+            "--playlist-end", String.valueOf(maxVideos),
+            "--no-warnings",
+            listingUrl);
+        ProcessSupervisor.ProcessResult result;
+        try (ScratchDirectories.ScratchDirectory scratch = scratchDirectories.create(UUID.randomUUID())) {
+            result = processSupervisor.run("yt-dlp list", command, scratch.path(), listTimeout);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create a scratch directory: " + e.getMessage(), e);
+        }
+        if (result.exitCode() != 0) {
+            throw new IllegalStateException("yt-dlp could not list " + listingUrl + ": " + result.stderrTail());
+        }
+        // One ID per line; a channel listing can repeat videos across sections
+        Set<String> ids = new LinkedHashSet<>();
+        for (String line : result.stdout().split("\\R")) {
+            String id = line.trim();
+            if (VIDEO_ID.matcher(id).matches()) {
+                ids.add(id);
+            }
+        }
+        return List.copyOf(ids);
+    }
+
+    private Progress progress(IngestionBatch batch) {
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        for (Object[] row : extractionJobRepository.countByStatusForBatch(batch.getId())) {
+            byStatus.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        long complete = byStatus.getOrDefault("COMPLETE", 0L);
+        long failed = byStatus.getOrDefault("FAILED", 0L);
+        long pending = byStatus.getOrDefault("PENDING", 0L);
+        long total = byStatus.values().stream().mapToLong(Long::longValue).sum();
+        long running = total - complete - failed - pending;
+        int percent = total == 0 ? 100 : (int) ((complete + failed) * 100 / total);
+        String state = complete + failed == total ? "COMPLETE" : "RUNNING";
+        return new Progress(batch.getId(), batch.getSourceUrl(), state, batch.getVideosFound(), batch.getVideosSkipped(),
+            batch.getVideosQueued(), pending, running, complete, failed, percent, batch.getCreatedAt());
+    }
+
+    /**
+     * Aggregate progress of a batch; percent counts finished (complete or failed) jobs.
+     */
+    public record Progress(UUID batchId, String sourceUrl, String state, int videosFound, int videosSkipped,
+                           int videosQueued, long pending, long running, long complete, long failed, int percent,
+                           Instant createdAt) {
+    }
+}
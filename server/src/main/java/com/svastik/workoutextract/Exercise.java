@@ -0,0 +1,18 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One exercise as returned by Gemini. reps, sets and rest are free text ("8-12", "60s") and null
+ * when the video does not state them.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record Exercise(
+        String name,
+        String reps,
+        String rest,
+        String sets,
+        String emoji,
+        String notes,
+        String difficulty) {
+}
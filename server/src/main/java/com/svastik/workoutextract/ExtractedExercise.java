@@ -0,0 +1,22 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * One exercise from a single-call extraction. Each of reps, sets and rest comes as the value the
+ * video states ({@code *Observed}, null when it does not) and a best estimate that is always
+ * filled in ({@code *Estimated}).
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ExtractedExercise(
+        String name,
+        String repsObserved,
+        String repsEstimated,
+        String restObserved,
+        String restEstimated,
+        String setsObserved,
+        String setsEstimated,
+        String emoji,
+        String notes,
+        String difficulty) {
+}
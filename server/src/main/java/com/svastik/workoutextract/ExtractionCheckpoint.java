@@ -0,0 +1,36 @@
+package com.svastik.workoutextract;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "extraction_checkpoints", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_extraction_checkpoints_job_stage", columnNames = {"job_id", "stage"})
+}, indexes = {
+    @Index(name = "idx_extraction_checkpoints_created", columnList = "created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ExtractionCheckpoint {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_id", nullable = false)
+    private UUID jobId;
+
+    // Pipeline stage whose output this is, e.g. "clean" or "llm"
+    @Column(nullable = false)
+    private String stage;
+
+    // Stage output as JSON
+    @Column(nullable = false, columnDefinition = "text")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+}
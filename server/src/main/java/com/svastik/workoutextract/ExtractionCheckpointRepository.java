@@ -0,0 +1,24 @@
+package com.svastik.workoutextract;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface ExtractionCheckpointRepository extends JpaRepository<ExtractionCheckpoint, Long> {
+    Optional<ExtractionCheckpoint> findByJobIdAndStage(UUID jobId, String stage);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExtractionCheckpoint c WHERE c.jobId = :jobId")
+    int deleteByJobId(@Param("jobId") UUID jobId);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ExtractionCheckpoint c WHERE c.createdAt < :cutoff")
+    int deleteCreatedBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,89 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Outputs of completed pipeline stages, kept per job in extraction_checkpoints so a retried job
+ * resumes after the last stage that succeeded instead of re-running yt-dlp and Gemini. Checkpoints
+ * are removed when the job completes; those of jobs that are never retried expire after the TTL.
+ *
+ * Checkpoint failures never fail a job: they are logged, and a missing checkpoint only means the
+ * stage runs again.
+ */
+@Component
+public class ExtractionCheckpointStore {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionCheckpointStore.class);
+
+    private final ExtractionCheckpointRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public ExtractionCheckpointStore(
+            ExtractionCheckpointRepository repository,
+            ObjectMapper objectMapper,
+            @Value("${extraction.checkpoints.ttl:P7D}") Duration ttl) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    public <T> Optional<T> load(UUID jobId, String stage, Class<T> type) {
+        try {
+            Optional<ExtractionCheckpoint> checkpoint = repository.findByJobIdAndStage(jobId, stage);
+            if (checkpoint.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(checkpoint.get().getPayload(), type));
+        } catch (Exception e) {
+            logger.warn("[Checkpoint] Failed to load '{}' checkpoint of job {}: {}", stage, jobId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Records the output of {@code stage}, replacing an earlier checkpoint of the same stage.
+     */
+    public void save(UUID jobId, String stage, Object output) {
+        try {
+            String payload = objectMapper.writeValueAsString(output);
+            ExtractionCheckpoint checkpoint = repository.findByJobIdAndStage(jobId, stage)
+                .orElseGet(() -> ExtractionCheckpoint.builder().jobId(jobId).stage(stage).build());
+            checkpoint.setPayload(payload);
+            checkpoint.setCreatedAt(Instant.now());
+            repository.save(checkpoint);
+            logger.info("[Checkpoint] Saved '{}' checkpoint of job {} ({} chars)", stage, jobId, payload.length());
+        } catch (Exception e) {
+            logger.warn("[Checkpoint] Failed to save '{}' checkpoint of job {}: {}", stage, jobId, e.getMessage());
+        }
+    }
+
+    public void delete(UUID jobId) {
+        try {
+            repository.deleteByJobId(jobId);
+        } catch (Exception e) {
+            logger.warn("[Checkpoint] Failed to delete checkpoints of job {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${extraction.checkpoints.sweep-interval:PT1H}")
+    public void expire() {
+        try {
+            int expired = repository.deleteCreatedBefore(Instant.now().minus(ttl));
+            if (expired > 0) {
+                logger.info("[Checkpoint] Expired {} checkpoints older than {}", expired, ttl);
+            }
+        } catch (Exception e) {
+            logger.warn("[Checkpoint] Checkpoint sweep failed: {}", e.getMessage());
+        }
+    }
+}
@@ -2,6 +2,13 @@ package com.svastik.workoutextract;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.annotations.UpdateTimestamp;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
@@ -9,6 +16,7 @@ import java.util.UUID;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@Builder(toBuilder = true)
 public class ExtractionJob {
     @Id
     @GeneratedValue
@@ -29,7 +37,57 @@ public class ExtractionJob {
     @Column(name = "error_message")
     private String errorMessage;
 
+    // Wall-clock milliseconds spent in each pipeline stage, in execution order
+    @Column(name = "stage_timings", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Long> stageTimings;
+
+    // Per-job counters such as comments fetched versus used
+    @Column(name = "metrics", columnDefinition = "jsonb")
+    @JdbcTypeCode(SqlTypes.JSON)
+    private Map<String, Object> metrics;
+
+    // Scheduling class; queued interactive jobs run ahead of bulk ones, see ExtractionTaskQueue
+    @Enumerated(EnumType.STRING)
+    @Column(name = "priority", columnDefinition = "varchar(16) default 'INTERACTIVE' not null")
+    @Builder.Default
+    private JobPriority priority = JobPriority.INTERACTIVE;
+
+    // Ingestion batch that created the job, if any
+    @Column(name = "batch_id")
+    private UUID batchId;
+
+    // Durable-queue lease. Written only by the claim and heartbeat queries in ExtractionJobRepository,
+    // never by entity saves, so progress snapshots cannot clobber a lease renewed in the meantime
+    @Column(name = "lease_owner", updatable = false)
+    private String leaseOwner;
+
+    @Column(name = "lease_expires_at", updatable = false)
+    private Instant leaseExpiresAt;
+
+    // Times the job has been claimed from the durable queue
+    @Column(name = "attempts", updatable = false, columnDefinition = "integer default 0 not null")
+    private int attempts;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+
     public UUID getId() {
         return id;
     }
+
+    /**
+     * Copy of this job that shares no mutable state with it.
+     */
+    public ExtractionJob snapshot() {
+        return toBuilder()
+            .stageTimings(stageTimings != null ? new LinkedHashMap<>(stageTimings) : null)
+            .metrics(metrics != null ? new LinkedHashMap<>(metrics) : null)
+            .build();
+    }
 } 
\ No newline at end of file
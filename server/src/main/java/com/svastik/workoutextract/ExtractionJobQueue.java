@@ -0,0 +1,190 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Durable job queue on top of extraction_jobs, for running several server instances against one
+ * database. The controller only inserts PENDING rows; every node polls for unfinished jobs without
+ * a live lease, claims as many as it has idle extraction workers with SELECT ... FOR UPDATE SKIP
+ * LOCKED, and renews the leases of the jobs it is running. A job whose node dies or is redeployed
+ * stops being renewed and is claimed again by whichever node polls next, up to max-attempts.
+ *
+ * Claims follow the executor's priority order, and bulk jobs are only claimed while this node runs
+ * fewer of them than its bulk worker limit, so the reserved workers stay free for interactive jobs.
+ */
+@Component
+@ConditionalOnProperty(name = "extraction.queue.durable", havingValue = "true")
+public class ExtractionJobQueue {
+    private static final Logger logger = LoggerFactory.getLogger(ExtractionJobQueue.class);
+
+    private final ExtractionJobRepository extractionJobRepository;
+    private final VideoExtractionService videoExtractionService;
+    private final ThreadPoolTaskExecutor extractionExecutor;
+    private final Duration leaseDuration;
+    private final int maxAttempts;
+    private final int bulkWorkerLimit;
+    private final long interactiveHeadStartSeconds;
+    // Unique per process, so a restarted node never mistakes its predecessor's leases for its own
+    private final String owner;
+    private final Map<UUID, JobPriority> held = new ConcurrentHashMap<>();
+    private final Counter claimedCounter;
+    private final Counter lostLeaseCounter;
+    private final Counter exhaustedCounter;
+
+    public ExtractionJobQueue(
+            ExtractionJobRepository extractionJobRepository,
+            VideoExtractionService videoExtractionService,
+            @Qualifier("extractionExecutor") ThreadPoolTaskExecutor extractionExecutor,
+            MeterRegistry meterRegistry,
+            @Value("${extraction.queue.lease-duration:PT2M}") Duration leaseDuration,
+            @Value("${extraction.queue.max-attempts:3}") int maxAttempts,
+            @Value("${extraction.scheduler.reserved-interactive-workers:1}") int reservedInteractiveWorkers,
+            @Value("${extraction.scheduler.interactive-head-start:PT5M}") Duration interactiveHeadStart) {
+        this.extractionJobRepository = extractionJobRepository;
+        this.videoExtractionService = videoExtractionService;
+        this.extractionExecutor = extractionExecutor;
+        this.leaseDuration = leaseDuration;
+        this.maxAttempts = maxAttempts;
+        this.bulkWorkerLimit = Math.max(1, extractionExecutor.getMaxPoolSize() - reservedInteractiveWorkers);
+        this.interactiveHeadStartSeconds = interactiveHeadStart.toSeconds();
+        this.owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID().toString().substring(0, 8);
+        this.claimedCounter = Counter.builder("extraction.queue.claimed")
+            .description("Jobs claimed from the durable queue by this node")
+            .register(meterRegistry);
+        this.lostLeaseCounter = Counter.builder("extraction.queue.leases_lost")
+            .description("Running jobs whose lease expired and may have been claimed by another node")
+            .register(meterRegistry);
+        this.exhaustedCounter = Counter.builder("extraction.queue.exhausted")
+            .description("Jobs failed after being claimed max-attempts times without finishing")
+            .register(meterRegistry);
+        Gauge.builder("extraction.queue.held", held, Map::size)
+            .description("Jobs leased and running on this node")
+            .register(meterRegistry);
+        logger.info("[Queue] Durable queue enabled, node {} (lease {}, max attempts {})", owner, leaseDuration, maxAttempts);
+    }
+
+    /**
+     * Claims jobs for the idle extraction workers on this node and starts them. Jobs are only
+     * claimed for free workers, never to sit in the local executor queue while another node idles.
+     */
+    @Scheduled(fixedDelayString = "${extraction.queue.poll-interval:PT2S}")
+    public void poll() {
+        // Counted from the jobs held here rather than getActiveCount(), which briefly reports
+        // freshly prestarted workers as active and would under-claim right after startup
+        int idle = extractionExecutor.getMaxPoolSize() - held.size();
+        if (idle <= 0) {
+            return;
+        }
+        Instant now = Instant.now();
+        // Truncated to what Postgres stores, since it doubles as the token findClaimed matches on
+        Instant leaseUntil = now.plus(leaseDuration).truncatedTo(ChronoUnit.MILLIS);
+        // Workers that may still take a bulk job claim in priority order; the rest only take interactive jobs
+        int bulkSlots = Math.max(0, bulkWorkerLimit - heldBulk());
+        int anyPriority = Math.min(idle, bulkSlots);
+        int claimed = 0;
+        if (anyPriority > 0) {
+            claimed = extractionJobRepository.claimJobs(owner, now, leaseUntil, maxAttempts, anyPriority, true,
+                interactiveHeadStartSeconds);
+        }
+        if (claimed == anyPriority && idle > anyPriority) {
+            claimed += extractionJobRepository.claimJobs(owner, now, leaseUntil, maxAttempts, idle - anyPriority, false,
+                interactiveHeadStartSeconds);
+        }
+        if (claimed == 0) {
+            return;
+        }
+        List<ExtractionJob> jobs = extractionJobRepository.findClaimed(owner, leaseUntil);
+        logger.info("[Queue] Claimed {} jobs: {}", jobs.size(), jobs.stream().map(ExtractionJob::getId).toList());
+        claimedCounter.increment(jobs.size());
+        for (ExtractionJob job : jobs) {
+            start(job.getId(), job.getPriority() != null ? job.getPriority() : JobPriority.INTERACTIVE);
+        }
+    }
+
+    private void start(UUID jobId, JobPriority priority) {
+        held.put(jobId, priority);
+        try {
+            extractionExecutor.execute(new ExtractionTaskQueue.Prioritized(priority, () -> {
+                try {
+                    videoExtractionService.runWorkoutExtraction(jobId);
+                } finally {
+                    held.remove(jobId);
+                }
+            }));
+        } catch (TaskRejectedException e) {
+            // The pool filled up between sizing the claim and submitting; let any node take it
+            held.remove(jobId);
+            extractionJobRepository.releaseLease(jobId, owner);
+            logger.warn("[Queue] Executor rejected job {}, lease released", jobId);
+        }
+    }
+
+    /**
+     * Extends the leases of the jobs running here. Must run well within the lease duration.
+     */
+    @Scheduled(fixedDelayString = "${extraction.queue.heartbeat-interval:PT30S}")
+    public void heartbeat() {
+        Set<UUID> running = Set.copyOf(held.keySet());
+        if (running.isEmpty()) {
+            return;
+        }
+        Instant leaseUntil = Instant.now().plus(leaseDuration).truncatedTo(ChronoUnit.MILLIS);
+        int renewed = extractionJobRepository.renewLeases(running, owner, leaseUntil);
+        if (renewed < running.size()) {
+            // Renewals that were late enough for another node to claim the job; both nodes now run it
+            lostLeaseCounter.increment(running.size() - renewed);
+            logger.warn("[Queue] Renewed {} of {} leases; the rest were taken over by another node", renewed, running.size());
+        }
+    }
+
+    /**
+     * Fails jobs whose lease ran out on their last allowed attempt, which would otherwise never be
+     * claimed again and stay PENDING forever.
+     */
+    @Scheduled(fixedDelayString = "${extraction.queue.reclaim-interval:PT1M}")
+    public void failExhausted() {
+        int failed = extractionJobRepository.failExhausted(Instant.now(), maxAttempts,
+            "Extraction was interrupted " + maxAttempts + " times");
+        if (failed > 0) {
+            exhaustedCounter.increment(failed);
+            logger.warn("[Queue] Failed {} jobs that exhausted {} attempts", failed, maxAttempts);
+        }
+    }
+
+    String owner() {
+        return owner;
+    }
+
+    int heldCount() {
+        return held.size();
+    }
+
+    int heldInteractive() {
+        return held.size() - heldBulk();
+    }
+
+    private int heldBulk() {
+        return (int) held.values().stream().filter(priority -> priority == JobPriority.BULK).count();
+    }
+}
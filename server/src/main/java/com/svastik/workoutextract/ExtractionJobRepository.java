@@ -1,7 +1,90 @@
 package com.svastik.workoutextract;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
  
 public interface ExtractionJobRepository extends JpaRepository<ExtractionJob, UUID> {
-} 
\ No newline at end of file
+    @Query("SELECT j FROM ExtractionJob j WHERE j.youtubeVideoId = :youtubeVideoId " +
+           "AND j.status NOT IN ('COMPLETE', 'FAILED') AND j.updatedAt > :updatedSince " +
+           "ORDER BY j.createdAt DESC")
+    List<ExtractionJob> findActiveByYoutubeVideoId(@Param("youtubeVideoId") String youtubeVideoId,
+                                                   @Param("updatedSince") Instant updatedSince);
+
+    // Videos among youtubeVideoIds with an unfinished job updated since updatedSince, or a batch job
+    // still waiting to start (those can wait far longer than updatedSince without being orphaned)
+    @Query("SELECT DISTINCT j.youtubeVideoId FROM ExtractionJob j WHERE j.youtubeVideoId IN :youtubeVideoIds " +
+           "AND j.status NOT IN ('COMPLETE', 'FAILED') " +
+           "AND (j.updatedAt > :updatedSince OR (j.batchId IS NOT NULL AND j.status = 'PENDING'))")
+    List<String> findActiveYoutubeVideoIds(@Param("youtubeVideoIds") Collection<String> youtubeVideoIds,
+                                           @Param("updatedSince") Instant updatedSince);
+
+    // Job count per status for an ingestion batch, as (status, count) rows
+    @Query("SELECT j.status, COUNT(j) FROM ExtractionJob j WHERE j.batchId = :batchId GROUP BY j.status")
+    List<Object[]> countByStatusForBatch(@Param("batchId") UUID batchId);
+
+    // Batch jobs not started yet, oldest first
+    @Query("SELECT j.id FROM ExtractionJob j WHERE j.batchId IS NOT NULL AND j.status = 'PENDING' ORDER BY j.createdAt")
+    List<UUID> findPendingBatchJobIds();
+
+    /**
+     * Leases up to {@code limit} unfinished jobs whose lease is missing or expired to {@code owner},
+     * in the order ExtractionTaskQueue runs them: by creation time, with interactive jobs ranked
+     * {@code interactiveHeadStartSeconds} earlier than they were created. Bulk jobs are only
+     * considered when {@code includeBulk} is set. Rows being claimed by another node are skipped
+     * rather than waited on, so any number of nodes can poll concurrently.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE extraction_jobs SET lease_owner = :owner, lease_expires_at = :leaseUntil, attempts = attempts + 1 " +
+           "WHERE id IN (SELECT id FROM extraction_jobs WHERE status NOT IN ('COMPLETE', 'FAILED') " +
+           "AND (lease_expires_at IS NULL OR lease_expires_at < :now) AND attempts < :maxAttempts " +
+           "AND (:includeBulk OR priority <> 'BULK') " +
+           "ORDER BY created_at - CASE WHEN priority = 'BULK' THEN interval '0 seconds' " +
+           "ELSE make_interval(secs => :interactiveHeadStartSeconds) END " +
+           "LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int claimJobs(@Param("owner") String owner, @Param("now") Instant now, @Param("leaseUntil") Instant leaseUntil,
+                  @Param("maxAttempts") int maxAttempts, @Param("limit") int limit,
+                  @Param("includeBulk") boolean includeBulk,
+                  @Param("interactiveHeadStartSeconds") long interactiveHeadStartSeconds);
+
+    // The jobs claimJobs calls with the same owner and leaseUntil just leased
+    @Query(value = "SELECT * FROM extraction_jobs WHERE lease_owner = :owner AND lease_expires_at = :leaseUntil " +
+           "ORDER BY created_at", nativeQuery = true)
+    List<ExtractionJob> findClaimed(@Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE extraction_jobs SET lease_expires_at = :leaseUntil " +
+           "WHERE id IN (:ids) AND lease_owner = :owner", nativeQuery = true)
+    int renewLeases(@Param("ids") Collection<UUID> ids, @Param("owner") String owner, @Param("leaseUntil") Instant leaseUntil);
+
+    // Hands a claimed job back without counting the attempt, e.g. when the local executor refused it
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE extraction_jobs SET lease_owner = NULL, lease_expires_at = NULL, attempts = attempts - 1 " +
+           "WHERE id = :id AND lease_owner = :owner", nativeQuery = true)
+    int releaseLease(@Param("id") UUID id, @Param("owner") String owner);
+
+    // Gives a manually retried job a fresh set of queue attempts
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE extraction_jobs SET lease_owner = NULL, lease_expires_at = NULL, attempts = 0 " +
+           "WHERE id = :id", nativeQuery = true)
+    int resetLease(@Param("id") UUID id);
+
+    // Jobs whose node kept dying under them are failed instead of being claimed forever
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE extraction_jobs SET status = 'FAILED', error_message = :errorMessage, lease_owner = NULL, " +
+           "updated_at = :now WHERE status NOT IN ('COMPLETE', 'FAILED') AND lease_expires_at < :now " +
+           "AND attempts >= :maxAttempts", nativeQuery = true)
+    int failExhausted(@Param("now") Instant now, @Param("maxAttempts") int maxAttempts,
+                      @Param("errorMessage") String errorMessage);
+}
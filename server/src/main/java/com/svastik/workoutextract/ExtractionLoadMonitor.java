@@ -0,0 +1,85 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Observes the extraction executor and recent job latency so the controller can tell
+ * rejected clients how long to wait before retrying.
+ */
+@Component
+public class ExtractionLoadMonitor {
+    // Weight of the newest sample in the moving average of job latency
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final ThreadPoolTaskExecutor extractionExecutor;
+    // Looked up on use: the durable queue only exists with extraction.queue.durable and depends on this bean
+    private final ObjectProvider<ExtractionJobQueue> extractionJobQueue;
+    private final Timer jobTimer;
+    private final Counter rejectedCounter;
+
+    private volatile double averageJobMillis;
+
+    public ExtractionLoadMonitor(
+            @Qualifier("extractionExecutor") ThreadPoolTaskExecutor extractionExecutor,
+            ObjectProvider<ExtractionJobQueue> extractionJobQueue,
+            MeterRegistry meterRegistry,
+            @Value("${extraction.executor.initial-latency-estimate:PT60S}") Duration initialLatencyEstimate) {
+        this.extractionExecutor = extractionExecutor;
+        this.extractionJobQueue = extractionJobQueue;
+        this.averageJobMillis = initialLatencyEstimate.toMillis();
+        this.jobTimer = Timer.builder("extraction.job.duration")
+            .description("Wall-clock time of an extraction job")
+            .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("extraction.jobs.rejected")
+            .description("Extraction requests rejected because the executor queue was full")
+            .register(meterRegistry);
+    }
+
+    public void recordJob(Duration duration) {
+        jobTimer.record(duration);
+        averageJobMillis = LATENCY_SMOOTHING * duration.toMillis() + (1 - LATENCY_SMOOTHING) * averageJobMillis;
+    }
+
+    public void recordRejection() {
+        rejectedCounter.increment();
+    }
+
+    // Jobs running or waiting for a worker on this node
+    public int pendingJobs() {
+        return extractionExecutor.getActiveCount() + queueDepth();
+    }
+
+    // Interactive jobs running or waiting for a worker on this node; bulk jobs are left out
+    public int interactiveJobs() {
+        int interactive = extractionExecutor.getThreadPoolExecutor().getQueue() instanceof ExtractionTaskQueue queue
+            ? queue.interactivePending()
+            : pendingJobs();
+        ExtractionJobQueue jobQueue = extractionJobQueue.getIfAvailable();
+        // Claimed jobs are held from just before they reach the executor, so the larger count covers both
+        return jobQueue != null ? Math.max(interactive, jobQueue.heldInteractive()) : interactive;
+    }
+
+    public int queueDepth() {
+        return extractionExecutor.getThreadPoolExecutor().getQueue().size();
+    }
+
+    /**
+     * Estimates how long until a new job could be admitted: the work ahead of it spread
+     * across the worker threads, at the observed average job latency.
+     */
+    public long retryAfterSeconds() {
+        int workers = Math.max(1, extractionExecutor.getMaxPoolSize());
+        int ahead = queueDepth() + extractionExecutor.getActiveCount();
+        double waitMillis = Math.ceil((double) ahead / workers) * averageJobMillis;
+        return Math.max(1, (long) Math.ceil(waitMillis / 1000));
+    }
+}
@@ -0,0 +1,283 @@
+package com.svastik.workoutextract;
+
+import java.time.Duration;
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue of the extraction executor with one FIFO lane per {@link JobPriority}. Workers take
+ * the lane head with the earliest rank: its enqueue time, less the interactive head start for
+ * interactive jobs. An interactive job therefore overtakes every bulk job queued less than the head
+ * start before it, while a bulk job that has waited longer than the head start is served next
+ * (aging), so bulk work is delayed but never starved. Since ranks only depend on enqueue time, each
+ * lane stays in rank order without re-sorting.
+ *
+ * At most bulk-worker-limit bulk jobs run at once; the remaining workers only take interactive
+ * jobs, so a user's request never waits behind a full pool of long bulk extractions. Tasks that
+ * are not {@link Prioritized} count as interactive. Offers beyond the capacity are refused, which
+ * the executor turns into a TaskRejectedException.
+ */
+class ExtractionTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+    private final int capacity;
+    private final int bulkWorkerLimit;
+    private final long interactiveHeadStartNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition takeable = lock.newCondition();
+    private final ArrayDeque<Entry> interactive = new ArrayDeque<>();
+    private final ArrayDeque<Entry> bulk = new ArrayDeque<>();
+    private int bulkRunning;
+    private int interactiveRunning;
+
+    ExtractionTaskQueue(int capacity, int bulkWorkerLimit, Duration interactiveHeadStart) {
+        this.capacity = capacity;
+        this.bulkWorkerLimit = Math.max(1, bulkWorkerLimit);
+        this.interactiveHeadStartNanos = interactiveHeadStart.toNanos();
+    }
+
+    /**
+     * A task submitted with its job's priority.
+     */
+    record Prioritized(JobPriority priority, Runnable task) implements Runnable {
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+
+    private record Entry(Runnable task, long rank) {
+    }
+
+    @Override
+    public boolean offer(Runnable task) {
+        JobPriority priority = task instanceof Prioritized prioritized ? prioritized.priority() : JobPriority.INTERACTIVE;
+        lock.lock();
+        try {
+            if (size() >= capacity) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (priority == JobPriority.BULK) {
+                bulk.addLast(new Entry(task, now));
+            } else {
+                interactive.addLast(new Entry(task, now - interactiveHeadStartNanos));
+            }
+            takeable.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+        return offer(task);
+    }
+
+    @Override
+    public void put(Runnable task) throws InterruptedException {
+        if (!offer(task)) {
+            throw new IllegalStateException("Extraction queue is full");
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return next();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = next()) == null) {
+                takeable.await();
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            Runnable task;
+            while ((task = next()) == null) {
+                if (remaining <= 0) {
+                    return null;
+                }
+                remaining = takeable.awaitNanos(remaining);
+            }
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Must hold the lock. Null when empty, or when only bulk jobs wait and the bulk workers are busy
+    private Runnable next() {
+        Entry interactiveHead = interactive.peekFirst();
+        Entry bulkHead = bulkRunning < bulkWorkerLimit ? bulk.peekFirst() : null;
+        if (bulkHead != null && (interactiveHead == null || bulkHead.rank() < interactiveHead.rank())) {
+            bulk.pollFirst();
+            bulkRunning++;
+            return counted(bulkHead.task(), JobPriority.BULK);
+        }
+        if (interactiveHead != null) {
+            interactive.pollFirst();
+            interactiveRunning++;
+            return counted(interactiveHead.task(), JobPriority.INTERACTIVE);
+        }
+        return null;
+    }
+
+    private Runnable counted(Runnable task, JobPriority priority) {
+        return () -> {
+            try {
+                task.run();
+            } finally {
+                finished(priority);
+            }
+        };
+    }
+
+    private void finished(JobPriority priority) {
+        lock.lock();
+        try {
+            if (priority == JobPriority.BULK) {
+                bulkRunning--;
+                takeable.signal();
+            } else {
+                interactiveRunning--;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            Entry head = interactive.isEmpty() ? bulk.peekFirst() : interactive.peekFirst();
+            return head != null ? head.task() : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return interactive.size() + bulk.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int bulkRunning() {
+        lock.lock();
+        try {
+            return bulkRunning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Interactive jobs queued or running; what the backfill yields to
+    int interactivePending() {
+        lock.lock();
+        try {
+            return interactive.size() + interactiveRunning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - size());
+    }
+
+    @Override
+    public boolean remove(Object task) {
+        lock.lock();
+        try {
+            return interactive.removeIf(entry -> entry.task() == task) || bulk.removeIf(entry -> entry.task() == task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Snapshot in lane order; Iterator.remove goes through remove(Object)
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> tasks = new ArrayList<>(size());
+            interactive.forEach(entry -> tasks.add(entry.task()));
+            bulk.forEach(entry -> tasks.add(entry.task()));
+            Iterator<Runnable> snapshot = tasks.iterator();
+            return new Iterator<>() {
+                private Runnable last;
+
+                @Override
+                public boolean hasNext() {
+                    return snapshot.hasNext();
+                }
+
+                @Override
+                public Runnable next() {
+                    last = snapshot.next();
+                    return last;
+                }
+
+                @Override
+                public void remove() {
+                    ExtractionTaskQueue.this.remove(last);
+                }
+            };
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Used on shutdown: hands over everything queued, bulk jobs included
+    @Override
+    public int drainTo(Collection<? super Runnable> target) {
+        return drainTo(target, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> target, int maxElements) {
+        lock.lock();
+        try {
+            int drained = 0;
+            while (drained < maxElements && !(interactive.isEmpty() && bulk.isEmpty())) {
+                Entry entry = interactive.isEmpty() ? bulk.pollFirst() : interactive.pollFirst();
+                target.add(entry.task());
+                drained++;
+            }
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
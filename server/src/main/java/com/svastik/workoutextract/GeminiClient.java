@@ -0,0 +1,377 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Calls Gemini generateContent over one shared java.net.http.HttpClient. The client negotiates
+ * HTTP/2 and keeps connections alive between calls, so concurrent jobs multiplex over a few TLS
+ * connections instead of opening one per request. LlmResponseCache is consulted before anything
+ * is sent. Requests then pass through the shared AdaptiveConcurrencyLimiter, and throttled or
+ * timed-out attempts are retried with jittered backoff until the caller's deadline runs out.
+ */
+@Component
+public class GeminiClient {
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+    private static final int ERROR_BODY_LIMIT = 500;
+
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private final GeminiRetryPolicy retryPolicy;
+    private final MeterRegistry meterRegistry;
+    private final String baseUrl;
+    private final String model;
+    private final String apiKey;
+    private final Duration requestTimeout;
+    private final Counter limiterRejections;
+    private final Counter upstreamRejections;
+    private final Counter retries;
+
+    public GeminiClient(
+            ObjectMapper objectMapper,
+            LlmResponseCache responseCache,
+            AdaptiveConcurrencyLimiter limiter,
+            GeminiRetryPolicy retryPolicy,
+            MeterRegistry meterRegistry,
+            @Value("${gemini.base-url:https://generativelanguage.googleapis.com/v1beta}") String baseUrl,
+            @Value("${gemini.model:gemini-1.5-flash}") String model,
+            @Value("${google.api.key:}") String apiKey,
+            @Value("${gemini.connect-timeout:PT5S}") Duration connectTimeout,
+            @Value("${gemini.request-timeout:PT60S}") Duration requestTimeout) {
+        this.objectMapper = objectMapper;
+        this.responseCache = responseCache;
+        this.limiter = limiter;
+        this.retryPolicy = retryPolicy;
+        this.meterRegistry = meterRegistry;
+        this.baseUrl = baseUrl;
+        this.model = model;
+        this.apiKey = apiKey;
+        this.requestTimeout = requestTimeout;
+        this.limiterRejections = Counter.builder("gemini.rejections").tag("source", "limiter").register(meterRegistry);
+        this.upstreamRejections = Counter.builder("gemini.rejections").tag("source", "upstream").register(meterRegistry);
+        this.retries = meterRegistry.counter("gemini.retries");
+        // Pooled connections stay open for jdk.httpclient.keepalive.timeout, a JVM-wide launch flag
+        // (set in the Dockerfile) rather than a setting of this client
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(connectTimeout)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .build();
+        logger.info("[Gemini] Client ready: model {}, connect timeout {}, request timeout {}, API key {}",
+            model, connectTimeout, requestTimeout, isConfigured() ? "present" : "not found");
+    }
+
+    public boolean isConfigured() {
+        return apiKey != null && !apiKey.isBlank();
+    }
+
+    /**
+     * Sends a single-part text prompt and returns the raw generateContent response body. Retries
+     * stop at {@code deadline}.
+     */
+    public String generateContent(String prompt, Instant deadline) {
+        return generateContent(Map.of(
+            "contents", List.of(Map.of("parts", List.of(Map.of("text", prompt))))
+        ), deadline);
+    }
+
+    /**
+     * Sends a prompt in JSON mode with {@code responseSchema} and deserializes the answer into
+     * {@code type}. Throws a GeminiException with {@link GeminiException#isContentError()} set when
+     * the answer is empty (e.g. blocked) or does not fit the type.
+     */
+    public <T> T generateStructured(String prompt, Map<String, Object> responseSchema, Class<T> type, Instant deadline) {
+        return generateStructured(prompt, responseSchema, type, deadline, null);
+    }
+
+    /**
+     * As {@link #generateStructured(String, Map, Class, Instant)}, also adding the call and its
+     * reported token counts to {@code usage}.
+     */
+    public <T> T generateStructured(String prompt, Map<String, Object> responseSchema, Class<T> type, Instant deadline,
+                                    LlmUsage usage) {
+        Exchange exchange = exchange(Map.of(
+            "contents", List.of(Map.of("parts", List.of(Map.of("text", prompt)))),
+            "generationConfig", Map.of(
+                "responseMimeType", "application/json",
+                "responseSchema", responseSchema
+            )
+        ), deadline);
+        T result;
+        try {
+            result = parseStructured(exchange.responseBody(), type, usage);
+        } catch (GeminiException e) {
+            if (exchange.cached()) {
+                // Stored before content was checked; replaying it would only fail again
+                responseCache.remove(exchange.cacheKey());
+            }
+            throw e;
+        }
+        // Only finished answers that deserialized are cached, so a truncated or blocked one is asked again
+        if (!exchange.cached() && isComplete(exchange.responseBody())) {
+            responseCache.put(exchange.cacheKey(), model, exchange.responseBody());
+        }
+        return result;
+    }
+
+    private <T> T parseStructured(String rawResponse, Class<T> type, LlmUsage usage) {
+        GeminiResponse response;
+        try {
+            response = objectMapper.readValue(rawResponse, GeminiResponse.class);
+        } catch (IOException e) {
+            throw new GeminiException(200, "Gemini response envelope is not valid JSON: " + e.getMessage());
+        }
+        if (usage != null) {
+            usage.record(response.usageMetadata());
+        }
+        String text = response.text();
+        if (text == null || text.isBlank()) {
+            throw new GeminiException(200, "Gemini returned no content (finishReason " + response.finishReason() + ")");
+        }
+        try {
+            return objectMapper.readValue(text, type);
+        } catch (IOException e) {
+            // JSON mode output is plain JSON; tolerate a stray code fence or preamble before giving up
+            String json = outermostJsonObject(text);
+            if (json != null) {
+                try {
+                    return objectMapper.readValue(json, type);
+                } catch (IOException ignored) {
+                    // fall through
+                }
+            }
+            throw new GeminiException(200, "Gemini content does not match " + type.getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sends a full generateContent request body and returns the raw response body. Retries stop at
+     * {@code deadline}.
+     */
+    public String generateContent(Map<String, Object> requestBody, Instant deadline) {
+        Exchange exchange = exchange(requestBody, deadline);
+        if (!exchange.cached() && isComplete(exchange.responseBody())) {
+            responseCache.put(exchange.cacheKey(), model, exchange.responseBody());
+        }
+        return exchange.responseBody();
+    }
+
+    /**
+     * A response body and the cache key it was looked up under; cached is set when it came from
+     * the response cache rather than from Gemini.
+     */
+    private record Exchange(String cacheKey, String responseBody, boolean cached) {
+    }
+
+    // Answers from the cache, or from Gemini with retries until the deadline; stores nothing
+    private Exchange exchange(Map<String, Object> requestBody, Instant deadline) {
+        if (!isConfigured()) {
+            throw new IllegalStateException("GOOGLE_API_KEY is not configured");
+        }
+        String cacheKey = responseCache.keyFor(model, requestBody);
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isPresent()) {
+            logger.info("[Gemini] Using cached response {}", cacheKey.substring(0, 12));
+            return new Exchange(cacheKey, cached.get(), true);
+        }
+        byte[] body;
+        try {
+            body = objectMapper.writeValueAsBytes(requestBody);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Gemini request body is not serializable", e);
+        }
+
+        GeminiException lastFailure = null;
+        for (int attempt = 1; attempt <= retryPolicy.maxAttempts(); attempt++) {
+            Duration remaining = Duration.between(Instant.now(), deadline);
+            if (remaining.isNegative() || remaining.isZero()) {
+                break;
+            }
+            try {
+                if (!limiter.acquire(remaining)) {
+                    limiterRejections.increment();
+                    lastFailure = new GeminiException(0, "No Gemini capacity before the deadline (limit " + limiter.limit() + ")");
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GeminiException("Interrupted while waiting for Gemini capacity", e);
+            }
+
+            Duration attemptTimeout = min(requestTimeout, Duration.between(Instant.now(), deadline));
+            if (attemptTimeout.isNegative() || attemptTimeout.isZero()) {
+                limiter.onIgnore();
+                break;
+            }
+            long startedAt = System.nanoTime();
+            try {
+                String responseBody = send(body, attemptTimeout);
+                limiter.onSuccess(Duration.ofNanos(System.nanoTime() - startedAt));
+                return new Exchange(cacheKey, responseBody, false);
+            } catch (GeminiException e) {
+                if (isOverload(e)) {
+                    limiter.onOverload();
+                    upstreamRejections.increment();
+                } else {
+                    limiter.onIgnore();
+                }
+                if (!retryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                lastFailure = e;
+            } catch (RuntimeException e) {
+                limiter.onIgnore();
+                throw e;
+            }
+
+            if (attempt < retryPolicy.maxAttempts()) {
+                Duration backoff = retryPolicy.backoff(attempt);
+                if (Instant.now().plus(backoff).isAfter(deadline)) {
+                    break;
+                }
+                logger.warn("[Gemini] Attempt {} failed ({}), retrying in {} ms", attempt, lastFailure.getMessage(), backoff.toMillis());
+                retries.increment();
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new GeminiException("Interrupted while backing off", e);
+                }
+            }
+        }
+        if (lastFailure == null) {
+            lastFailure = new GeminiException(0, "Gemini deadline passed before the request could be sent");
+        }
+        throw lastFailure;
+    }
+
+    private String send(byte[] body, Duration timeout) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/models/" + model + ":generateContent"))
+            .timeout(timeout)
+            .header("Content-Type", "application/json")
+            .header("Accept-Encoding", "gzip")
+            // Header rather than query parameter keeps the key out of access logs and exceptions
+            .header("x-goog-api-key", apiKey)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body))
+            .build();
+
+        long startedAt = System.nanoTime();
+        String outcome = "error";
+        try {
+            HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            String responseBody = readBody(response);
+            outcome = Integer.toString(response.statusCode());
+            logger.debug("[Gemini] {} {} ({} request bytes, {} response chars, {})",
+                response.statusCode(), response.version(), body.length, responseBody.length(),
+                Duration.ofNanos(System.nanoTime() - startedAt));
+            if (response.statusCode() / 100 != 2) {
+                throw new GeminiException(response.statusCode(), "Gemini returned HTTP " + response.statusCode() + ": "
+                    + responseBody.substring(0, Math.min(ERROR_BODY_LIMIT, responseBody.length())));
+            }
+            return responseBody;
+        } catch (HttpTimeoutException e) {
+            outcome = "timeout";
+            throw new GeminiException("Gemini did not respond within " + timeout.toMillis() + " ms", e);
+        } catch (IOException e) {
+            throw new GeminiException("Gemini request failed: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GeminiException("Interrupted while waiting for Gemini", e);
+        } finally {
+            Timer.builder("gemini.requests")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+    }
+
+    /**
+     * Throttling and timeouts mean the upstream is saturated; other errors say nothing about load.
+     */
+    private static boolean isOverload(GeminiException e) {
+        int status = e.getStatusCode();
+        return status == 0 || status == 429 || status == 503;
+    }
+
+    /**
+     * The first balanced {...} in {@code text}, skipping braces inside string literals; a linear scan
+     * rather than a backtracking regex.
+     */
+    static String outermostJsonObject(String text) {
+        int start = text.indexOf('{');
+        if (start < 0) return null;
+        int depth = 0;
+        boolean inString = false;
+        for (int i = start; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return text.substring(start, i + 1);
+            }
+        }
+        return null;
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * Only finished answers are worth caching; blocked, truncated or empty responses are not.
+     */
+    private boolean isComplete(String responseBody) {
+        try {
+            JsonNode candidates = objectMapper.readTree(responseBody).path("candidates");
+            if (candidates.size() == 0) {
+                return false;
+            }
+            String finishReason = candidates.get(0).path("finishReason").asText("STOP");
+            return finishReason.equals("STOP") && candidates.get(0).path("content").path("parts").size() > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static String readBody(HttpResponse<InputStream> response) throws IOException {
+        boolean gzip = response.headers().firstValue("Content-Encoding")
+            .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+            .orElse(false);
+        try (InputStream in = gzip ? new GZIPInputStream(response.body()) : response.body()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class GeminiConfig {
+
+    /**
+     * Shared limit on concurrent Gemini calls across all extraction jobs. It starts at
+     * gemini.limiter.initial and adapts between min and max as calls succeed or get throttled.
+     */
+    @Bean
+    public AdaptiveConcurrencyLimiter geminiConcurrencyLimiter(
+            @Value("${gemini.limiter.initial:4}") int initialLimit,
+            @Value("${gemini.limiter.min:1}") int minLimit,
+            @Value("${gemini.limiter.max:32}") int maxLimit,
+            @Value("${gemini.limiter.backoff-ratio:0.5}") double backoffRatio,
+            @Value("${gemini.limiter.latency-threshold:PT30S}") Duration latencyThreshold,
+            MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimiter limiter =
+            new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold);
+        Gauge.builder("gemini.limiter.limit", limiter, AdaptiveConcurrencyLimiter::limit).register(meterRegistry);
+        Gauge.builder("gemini.limiter.inflight", limiter, AdaptiveConcurrencyLimiter::inFlight).register(meterRegistry);
+        return limiter;
+    }
+
+    @Bean
+    public GeminiRetryPolicy geminiRetryPolicy(
+            @Value("${gemini.retry.max-attempts:4}") int maxAttempts,
+            @Value("${gemini.retry.initial-backoff:PT1S}") Duration initialBackoff,
+            @Value("${gemini.retry.max-backoff:PT20S}") Duration maxBackoff) {
+        return new GeminiRetryPolicy(maxAttempts, initialBackoff, maxBackoff);
+    }
+}
@@ -0,0 +1,30 @@
+package com.svastik.workoutextract;
+
+/**
+ * A Gemini call that did not produce a usable response. {@code statusCode} is the HTTP status, or 0
+ * when the request never got a response (timeout, connection failure).
+ */
+public class GeminiException extends RuntimeException {
+    private final int statusCode;
+
+    public GeminiException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public GeminiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Gemini answered successfully, but the content was empty or did not match the requested schema.
+     */
+    public boolean isContentError() {
+        return statusCode / 100 == 2;
+    }
+}
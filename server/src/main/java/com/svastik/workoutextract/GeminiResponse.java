@@ -0,0 +1,42 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+
+/**
+ * The parts of a generateContent response the pipeline reads.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record GeminiResponse(List<Candidate> candidates, UsageMetadata usageMetadata) {
+
+    /**
+     * Text of the first part of the first candidate, or null if there is none.
+     */
+    public String text() {
+        if (candidates == null || candidates.isEmpty()) return null;
+        Candidate first = candidates.get(0);
+        if (first.content() == null || first.content().parts() == null || first.content().parts().isEmpty()) return null;
+        return first.content().parts().get(0).text();
+    }
+
+    public String finishReason() {
+        return candidates == null || candidates.isEmpty() ? null : candidates.get(0).finishReason();
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Candidate(Content content, String finishReason) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Content(List<Part> parts) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record Part(String text) {
+    }
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record UsageMetadata(int promptTokenCount, int candidatesTokenCount, int totalTokenCount) {
+    }
+}
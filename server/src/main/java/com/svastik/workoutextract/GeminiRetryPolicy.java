@@ -0,0 +1,28 @@
+package com.svastik.workoutextract;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry schedule for Gemini calls: up to {@code maxAttempts} tries, with "full jitter" exponential
+ * backoff so that jobs throttled at the same moment do not retry in lockstep.
+ */
+public record GeminiRetryPolicy(int maxAttempts, Duration initialBackoff, Duration maxBackoff) {
+
+    /**
+     * HTTP statuses worth retrying; 0 means the request got no response (timeout, connection reset).
+     */
+    public boolean isRetryable(GeminiException e) {
+        int status = e.getStatusCode();
+        return status == 0 || status == 429 || status == 500 || status == 502 || status == 503 || status == 504;
+    }
+
+    /**
+     * Delay before the attempt following {@code failedAttempt} (1-based): uniform in [0, cap], where
+     * cap doubles per attempt up to maxBackoff.
+     */
+    public Duration backoff(int failedAttempt) {
+        long cap = Math.min(maxBackoff.toMillis(), initialBackoff.toMillis() << Math.min(failedAttempt - 1, 20));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+}
@@ -0,0 +1,94 @@
+package com.svastik.workoutextract;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Picks the "golden" comments most likely to spell out the routine, one comment at a time:
+ * pinned workout comments first (in order), then the most-liked workout comments. Only a bounded
+ * number of candidates is ever held, so memory does not grow with the size of the comment section.
+ */
+public class GoldenCommentCollector {
+    private static final Pattern SETS_BY_REPS = Pattern.compile("\\d+x\\d+");
+
+    private final int limit;
+    private final List<String> pinned = new ArrayList<>();
+    // Min-heap of the best non-pinned candidates; extra room covers texts that duplicate a pinned comment
+    private final PriorityQueue<Candidate> best;
+    private final Map<String, Candidate> bestByText = new HashMap<>();
+    private int seen;
+    private int index;
+
+    public GoldenCommentCollector(int limit) {
+        this.limit = limit;
+        this.best = new PriorityQueue<>(Comparator
+            .comparingLong(Candidate::likes)
+            .thenComparing(Comparator.comparingInt(Candidate::index).reversed()));
+    }
+
+    public void offer(String text, long likes, boolean isPinned) {
+        seen++;
+        int position = index++;
+        if (!isWorkoutComment(text)) {
+            return;
+        }
+        if (isPinned) {
+            if (pinned.size() < limit) {
+                pinned.add(text);
+            }
+            return;
+        }
+        Candidate candidate = new Candidate(text, likes, position);
+        Candidate existing = bestByText.get(text);
+        if (existing != null) {
+            // Same text seen earlier: keep whichever copy ranks higher
+            if (best.comparator().compare(candidate, existing) <= 0) {
+                return;
+            }
+            best.remove(existing);
+        }
+        best.add(candidate);
+        bestByText.put(text, candidate);
+        if (best.size() > limit * 2) {
+            bestByText.remove(best.poll().text());
+        }
+    }
+
+    /**
+     * Number of comments offered, whether or not they were kept.
+     */
+    public int seen() {
+        return seen;
+    }
+
+    public List<String> result() {
+        List<String> golden = new ArrayList<>(pinned);
+        List<Candidate> ranked = new ArrayList<>(best);
+        ranked.sort(best.comparator().reversed());
+        for (Candidate candidate : ranked) {
+            if (golden.size() >= limit) {
+                break;
+            }
+            if (!golden.contains(candidate.text())) {
+                golden.add(candidate.text());
+            }
+        }
+        return golden;
+    }
+
+    static boolean isWorkoutComment(String text) {
+        if (text == null) return false;
+        String lower = text.toLowerCase();
+        // Keywords and regex for sets x reps
+        return lower.contains("sets") || lower.contains("reps") || lower.contains("routine") ||
+               SETS_BY_REPS.matcher(lower).find();
+    }
+
+    private record Candidate(String text, long likes, int index) {
+    }
+}
@@ -0,0 +1,77 @@
+package com.svastik.workoutextract;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Tracks the extraction job currently running on this node for each YouTube video ID,
+ * so a burst of requests for the same video is coalesced onto a single pipeline run.
+ *
+ * A claim first reserves the video with an incomplete future and creates the job outside any map
+ * operation, so a slow database write only holds up requests for the same video.
+ */
+@Component
+public class InFlightJobRegistry {
+    private final ConcurrentHashMap<String, CompletableFuture<UUID>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the in-flight job for the video, creating one with {@code jobFactory} if none exists.
+     * The factory runs at most once per video while its job is in flight.
+     */
+    public Claim claim(String youtubeVideoId, Supplier<UUID> jobFactory) {
+        CompletableFuture<UUID> reservation = new CompletableFuture<>();
+        CompletableFuture<UUID> existing;
+        while ((existing = inFlight.putIfAbsent(youtubeVideoId, reservation)) != null) {
+            try {
+                return new Claim(existing.join(), false);
+            } catch (CompletionException e) {
+                // The claim we waited on failed to create its job; try to create it ourselves
+                inFlight.remove(youtubeVideoId, existing);
+            }
+        }
+        try {
+            UUID jobId = jobFactory.get();
+            reservation.complete(jobId);
+            return new Claim(jobId, true);
+        } catch (RuntimeException e) {
+            inFlight.remove(youtubeVideoId, reservation);
+            reservation.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * The in-flight job for the video; waits for a claim that is still creating its job.
+     */
+    public Optional<UUID> find(String youtubeVideoId) {
+        CompletableFuture<UUID> job = inFlight.get(youtubeVideoId);
+        if (job == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(job.join());
+        } catch (CompletionException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Forgets the job once it reaches a terminal state so the next request can start a new run.
+     */
+    public void release(UUID jobId) {
+        inFlight.values().removeIf(job -> jobId.equals(job.getNow(null)));
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+
+    public record Claim(UUID jobId, boolean created) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.svastik.workoutextract;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One channel or playlist ingestion request. Its extraction jobs reference it through
+ * extraction_jobs.batch_id, from which progress is aggregated.
+ */
+@Entity
+@Table(name = "ingestion_batches")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IngestionBatch {
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    @Column(name = "source_url", nullable = false, columnDefinition = "text")
+    private String sourceUrl;
+
+    // Video IDs listed by yt-dlp for the source
+    @Column(name = "videos_found", nullable = false)
+    private int videosFound;
+
+    // Already in the catalog or being extracted when the batch was created
+    @Column(name = "videos_skipped", nullable = false)
+    private int videosSkipped;
+
+    // Extraction jobs created for the batch
+    @Column(name = "videos_queued", nullable = false)
+    private int videosQueued;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+}
@@ -0,0 +1,7 @@
+package com.svastik.workoutextract;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import java.util.UUID;
+
+public interface IngestionBatchRepository extends JpaRepository<IngestionBatch, UUID> {
+}
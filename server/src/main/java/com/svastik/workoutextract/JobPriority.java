@@ -0,0 +1,21 @@
+package com.svastik.workoutextract;
+
+/**
+ * Scheduling class of an extraction job. Interactive jobs are single URLs a user is waiting on;
+ * bulk jobs come from ingestion and re-extraction runs and only use the capacity left over.
+ */
+public enum JobPriority {
+    INTERACTIVE, BULK;
+
+    /**
+     * Parses a request value case-insensitively, defaulting to INTERACTIVE when absent.
+     *
+     * @throws IllegalArgumentException for an unknown value
+     */
+    public static JobPriority parse(String value) {
+        if (value == null || value.isBlank()) {
+            return INTERACTIVE;
+        }
+        return valueOf(value.trim().toUpperCase(java.util.Locale.ROOT));
+    }
+}
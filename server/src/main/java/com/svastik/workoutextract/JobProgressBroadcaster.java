@@ -0,0 +1,262 @@
+package com.svastik.workoutextract;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Pushes job progress to Server-Sent Event subscribers as the pipeline reports it, so watchers
+ * hold one open connection each instead of polling the status endpoint.
+ *
+ * Publishing never blocks on a client: events are queued per subscriber and written by a sender
+ * on a virtual thread. A subscriber that falls more than stream-buffer events behind loses its
+ * oldest progress events; each event is a full snapshot and the terminal one is always last, so
+ * it still ends on the final state.
+ */
+@Component
+public class JobProgressBroadcaster {
+    private static final Logger logger = LoggerFactory.getLogger(JobProgressBroadcaster.class);
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETE", "FAILED");
+
+    private final ExtractionJobRepository extractionJobRepository;
+    private final ConcurrentHashMap<UUID, Subscribers> subscribersByJob = new ConcurrentHashMap<>();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    @Value("${extraction.progress.stream-timeout:PT15M}")
+    private Duration streamTimeout = Duration.ofMinutes(15);
+
+    // Events queued per subscriber before the oldest are dropped
+    @Value("${extraction.progress.stream-buffer:16}")
+    private int streamBuffer = 16;
+
+    public JobProgressBroadcaster(ExtractionJobRepository extractionJobRepository) {
+        this.extractionJobRepository = extractionJobRepository;
+    }
+
+    /**
+     * Opens a stream for the job, starting with its current state. The stream completes
+     * right away if the job has already finished. {@code latest} re-reads the job once the
+     * subscriber is registered, since it may have finished after {@code current} was read.
+     */
+    public SseEmitter subscribe(ExtractionJob current, Supplier<Optional<ExtractionJob>> latest) {
+        return subscribe(new SseEmitter(streamTimeout.toMillis()), current, latest);
+    }
+
+    SseEmitter subscribe(SseEmitter emitter, ExtractionJob current, Supplier<Optional<ExtractionJob>> latest) {
+        Subscribers subscribers = subscribersByJob.computeIfAbsent(current.getId(), id -> new Subscribers());
+        Subscriber subscriber = new Subscriber(emitter, subscribers);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(e -> subscribers.remove(subscriber));
+        subscribers.add(subscriber, current);
+        if (!TERMINAL_STATUSES.contains(current.getStatus())) {
+            // A terminal event published before the registration above reached nobody
+            latest.get()
+                .filter(job -> TERMINAL_STATUSES.contains(job.getStatus()))
+                .ifPresent(this::publish);
+        }
+        return emitter;
+    }
+
+    public void publish(ExtractionJob job) {
+        Subscribers subscribers = subscribersByJob.get(job.getId());
+        if (subscribers == null) {
+            return;
+        }
+        subscribers.publish(job);
+        if (TERMINAL_STATUSES.contains(job.getStatus())) {
+            subscribersByJob.remove(job.getId(), subscribers);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        senders.shutdownNow();
+    }
+
+    public int subscriberCount() {
+        return subscribersByJob.values().stream().mapToInt(Subscribers::size).sum();
+    }
+
+    /**
+     * Keeps idle connections open through proxies, and refreshes jobs running on other nodes
+     * (which never publish here) with one batched read instead of a query per watcher.
+     */
+    @Scheduled(fixedDelayString = "${extraction.progress.stream-keepalive:PT20S}")
+    public void keepAlive() {
+        Instant quietSince = Instant.now().minus(streamTimeout.dividedBy(30));
+        List<UUID> quietJobs = new ArrayList<>();
+        subscribersByJob.forEach((jobId, subscribers) -> {
+            subscribers.sendComment("keepalive");
+            if (subscribers.lastEventAt().isBefore(quietSince)) {
+                quietJobs.add(jobId);
+            }
+        });
+        if (!quietJobs.isEmpty()) {
+            extractionJobRepository.findAllById(quietJobs).forEach(this::publish);
+        }
+    }
+
+    static Map<String, Object> toEvent(ExtractionJob job) {
+        Map<String, Object> event = new HashMap<>();
+        event.put("id", job.getId());
+        event.put("youtubeVideoId", job.getYoutubeVideoId());
+        event.put("status", job.getStatus());
+        event.put("progress", job.getProgress());
+        if (job.getResultVideoId() != null) {
+            event.put("resultVideoId", job.getResultVideoId());
+            // The result video is always stored under the job's YouTube ID
+            event.put("resultYoutubeVideoId", job.getYoutubeVideoId());
+        }
+        if (job.getErrorMessage() != null) {
+            event.put("errorMessage", job.getErrorMessage());
+        }
+        return event;
+    }
+
+    private record Event(ExtractionJob job, String comment, boolean last) {
+    }
+
+    private static class Subscribers {
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private Instant lastEventAt = Instant.now();
+        private int lastProgress = -1;
+        private String lastStatus;
+
+        synchronized void add(Subscriber subscriber, ExtractionJob current) {
+            boolean terminal = TERMINAL_STATUSES.contains(current.getStatus());
+            if (!terminal) {
+                subscribers.add(subscriber);
+            }
+            subscriber.enqueue(new Event(current, null, terminal));
+        }
+
+        synchronized void remove(Subscriber subscriber) {
+            subscribers.remove(subscriber);
+        }
+
+        synchronized int size() {
+            return subscribers.size();
+        }
+
+        synchronized Instant lastEventAt() {
+            return lastEventAt;
+        }
+
+        synchronized void publish(ExtractionJob job) {
+            lastEventAt = Instant.now();
+            boolean terminal = TERMINAL_STATUSES.contains(job.getStatus());
+            // Database snapshots can lag behind what was already pushed; never move a watcher backwards
+            if (!terminal && (job.getProgress() < lastProgress
+                    || (job.getProgress() == lastProgress && job.getStatus().equals(lastStatus)))) {
+                return;
+            }
+            lastProgress = job.getProgress();
+            lastStatus = job.getStatus();
+            Event event = new Event(job, null, terminal);
+            subscribers.forEach(subscriber -> subscriber.enqueue(event));
+            if (terminal) {
+                subscribers.clear();
+            }
+        }
+
+        synchronized void sendComment(String comment) {
+            Event event = new Event(null, comment, false);
+            subscribers.forEach(subscriber -> subscriber.enqueueIfIdle(event));
+        }
+    }
+
+    private class Subscriber {
+        private final SseEmitter emitter;
+        private final Subscribers owner;
+        // Guarded by this
+        private final ArrayDeque<Event> pending = new ArrayDeque<>();
+        private boolean sending;
+        private boolean closed;
+
+        Subscriber(SseEmitter emitter, Subscribers owner) {
+            this.emitter = emitter;
+            this.owner = owner;
+        }
+
+        void enqueue(Event event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (pending.size() >= streamBuffer) {
+                    pending.pollFirst();
+                }
+                pending.addLast(event);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            senders.execute(this::drain);
+        }
+
+        // Keepalives only matter on an otherwise quiet connection
+        void enqueueIfIdle(Event event) {
+            synchronized (this) {
+                if (sending || !pending.isEmpty()) {
+                    return;
+                }
+            }
+            enqueue(event);
+        }
+
+        private void drain() {
+            while (true) {
+                Event event;
+                synchronized (this) {
+                    event = pending.pollFirst();
+                    if (event == null) {
+                        sending = false;
+                        return;
+                    }
+                }
+                try {
+                    if (event.comment() != null) {
+                        emitter.send(SseEmitter.event().comment(event.comment()));
+                    } else {
+                        emitter.send(SseEmitter.event().name("progress").data(toEvent(event.job())));
+                    }
+                    if (event.last()) {
+                        close();
+                        emitter.complete();
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    logger.debug("[Progress] Dropping disconnected subscriber: {}", e.getMessage());
+                    close();
+                    owner.remove(this);
+                }
+            }
+        }
+
+        private synchronized void close() {
+            closed = true;
+            pending.clear();
+        }
+    }
+}
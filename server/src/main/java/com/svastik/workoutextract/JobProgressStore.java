@@ -0,0 +1,151 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind store for the state of running extraction jobs. Progress updates land in memory
+ * and are served from there by the status endpoint; extraction_jobs only receives terminal
+ * transitions immediately, plus coalesced snapshots on a fixed interval.
+ *
+ * Writes happen outside any map operation, one at a time per job, and always write the job's
+ * latest snapshot, so a slow database only holds up that job and an older snapshot never
+ * overwrites a newer one. A job stays dirty until a write of its latest state succeeds; a
+ * terminal job whose write failed stays in memory and is retried by the next flush.
+ */
+@Component
+public class JobProgressStore {
+    private static final Logger logger = LoggerFactory.getLogger(JobProgressStore.class);
+    private static final Set<String> TERMINAL_STATUSES = Set.of("COMPLETE", "FAILED");
+
+    private final ExtractionJobRepository extractionJobRepository;
+    private final JobProgressBroadcaster jobProgressBroadcaster;
+    private final ConcurrentHashMap<UUID, LiveJob> liveJobs = new ConcurrentHashMap<>();
+    private final Counter updateCounter;
+    private final Counter writeCounter;
+
+    // Unchanged jobs are still re-persisted this often so other nodes don't consider them orphaned
+    @Value("${extraction.progress.heartbeat-interval:PT2M}")
+    private Duration heartbeatInterval = Duration.ofMinutes(2);
+
+    public JobProgressStore(
+            ExtractionJobRepository extractionJobRepository,
+            JobProgressBroadcaster jobProgressBroadcaster,
+            MeterRegistry meterRegistry) {
+        this.extractionJobRepository = extractionJobRepository;
+        this.jobProgressBroadcaster = jobProgressBroadcaster;
+        this.updateCounter = Counter.builder("extraction.progress.updates")
+            .description("Job state changes recorded by the pipeline")
+            .register(meterRegistry);
+        this.writeCounter = Counter.builder("extraction.progress.writes")
+            .description("Job state rows written to extraction_jobs")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Records the current state of the job and pushes it to stream subscribers. Terminal states
+     * are persisted before returning; anything else is kept in memory until the next flush.
+     */
+    public void update(ExtractionJob job) {
+        updateCounter.increment();
+        ExtractionJob snapshot = job.snapshot();
+        LiveJob live = liveJobs.computeIfAbsent(job.getId(), id -> new LiveJob());
+        synchronized (live) {
+            live.job = snapshot;
+            live.dirty = true;
+        }
+        if (TERMINAL_STATUSES.contains(snapshot.getStatus())) {
+            write(live, Instant.now());
+        }
+        jobProgressBroadcaster.publish(snapshot);
+    }
+
+    public Optional<ExtractionJob> find(UUID jobId) {
+        LiveJob live = liveJobs.get(jobId);
+        if (live == null) {
+            return Optional.empty();
+        }
+        synchronized (live) {
+            return Optional.of(live.job.snapshot());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${extraction.progress.flush-interval:PT15S}")
+    public void flush() {
+        Instant heartbeatCutoff = Instant.now().minus(heartbeatInterval);
+        for (LiveJob live : liveJobs.values()) {
+            write(live, heartbeatCutoff);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        logger.info("[Progress] Flushing {} live jobs before shutdown", liveJobs.size());
+        flush();
+    }
+
+    // Persists the job's latest snapshot if it is dirty or was last persisted before the cutoff
+    private void write(LiveJob live, Instant heartbeatCutoff) {
+        live.writeLock.lock();
+        try {
+            ExtractionJob snapshot;
+            synchronized (live) {
+                if (!live.dirty && live.lastPersistedAt.isAfter(heartbeatCutoff)) {
+                    return;
+                }
+                snapshot = live.job;
+            }
+            if (!persist(snapshot)) {
+                return;
+            }
+            boolean settled;
+            synchronized (live) {
+                if (live.job == snapshot) {
+                    live.dirty = false;
+                }
+                live.lastPersistedAt = Instant.now();
+                settled = !live.dirty && TERMINAL_STATUSES.contains(snapshot.getStatus());
+            }
+            if (settled) {
+                liveJobs.remove(snapshot.getId(), live);
+            }
+        } finally {
+            live.writeLock.unlock();
+        }
+    }
+
+    private boolean persist(ExtractionJob snapshot) {
+        try {
+            extractionJobRepository.save(snapshot);
+            writeCounter.increment();
+            return true;
+        } catch (Exception e) {
+            logger.error("[Progress] Failed to persist state of job {}, will retry on the next flush: {}",
+                snapshot.getId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private static final class LiveJob {
+        // Serializes writes of this job so they reach the database in order
+        private final ReentrantLock writeLock = new ReentrantLock();
+        // Guarded by the LiveJob monitor
+        private ExtractionJob job;
+        private boolean dirty;
+        private Instant lastPersistedAt = Instant.now();
+    }
+}
@@ -0,0 +1,186 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Persistent cache of Gemini responses. Prompts are deterministic functions of the transcript,
+ * comments and title, so a retry or re-extraction of the same video can reuse the earlier answer.
+ * Entries are keyed by SHA-256 of the model plus the request body with map keys sorted and
+ * whitespace in strings collapsed. A periodic sweep drops entries past the TTL, then evicts least
+ * recently used entries until the cache fits its size budget.
+ *
+ * Cache failures never fail a Gemini call: they are logged and treated as a miss.
+ */
+@Component
+public class LlmResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(LlmResponseCache.class);
+    private static final int EVICTION_BATCH = 200;
+
+    private final LlmResponseCacheRepository repository;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final long maxBytes;
+    private final Duration ttl;
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public LlmResponseCache(
+            LlmResponseCacheRepository repository,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${gemini.cache.enabled:true}") boolean enabled,
+            @Value("${gemini.cache.max-bytes:52428800}") long maxBytes,
+            @Value("${gemini.cache.ttl:P30D}") Duration ttl) {
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxBytes = maxBytes;
+        this.ttl = ttl;
+        this.hits = Counter.builder("gemini.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("gemini.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = meterRegistry.counter("gemini.cache.evictions");
+    }
+
+    public Optional<String> get(String cacheKey) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            Optional<String> cached = repository.findById(cacheKey).map(LlmResponseCacheEntry::getResponse);
+            if (cached.isPresent()) {
+                repository.recordHit(cacheKey, Instant.now());
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return cached;
+        } catch (DataAccessException e) {
+            logger.warn("[Gemini] Response cache lookup failed: {}", e.getMessage());
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String cacheKey, String model, String response) {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        try {
+            repository.save(LlmResponseCacheEntry.builder()
+                .cacheKey(cacheKey)
+                .model(model)
+                .response(response)
+                .sizeBytes(response.getBytes(StandardCharsets.UTF_8).length)
+                .createdAt(now)
+                .lastAccessedAt(now)
+                .build());
+        } catch (DataAccessException e) {
+            logger.warn("[Gemini] Failed to store response in cache: {}", e.getMessage());
+        }
+    }
+
+    public void remove(String cacheKey) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            repository.deleteById(cacheKey);
+        } catch (DataAccessException e) {
+            logger.warn("[Gemini] Failed to remove response from cache: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache key for a request: SHA-256 over the model and the normalized request body.
+     */
+    public String keyFor(String model, Map<String, Object> requestBody) {
+        try {
+            byte[] canonical = objectMapper.writeValueAsBytes(normalize(requestBody));
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            return HexFormat.of().formatHex(digest.digest(canonical));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Gemini request body is not serializable", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gemini.cache.eviction-interval:PT10M}")
+    public void evict() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int expired = repository.deleteNotAccessedSince(Instant.now().minus(ttl));
+            long total = repository.totalSizeBytes();
+            int evicted = 0;
+            while (total > maxBytes) {
+                List<Object[]> oldest = repository.findLeastRecentlyUsed(PageRequest.of(0, EVICTION_BATCH));
+                if (oldest.isEmpty()) {
+                    break;
+                }
+                List<String> keys = new ArrayList<>();
+                for (Object[] entry : oldest) {
+                    if (total <= maxBytes) {
+                        break;
+                    }
+                    keys.add((String) entry[0]);
+                    total -= ((Number) entry[1]).longValue();
+                }
+                repository.deleteAllByIdInBatch(keys);
+                evicted += keys.size();
+            }
+            if (expired + evicted > 0) {
+                evictions.increment(expired + evicted);
+                logger.info("[Gemini] Response cache sweep: {} expired, {} evicted, {} bytes remaining", expired, evicted, total);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("[Gemini] Response cache sweep failed: {}", e.getMessage());
+        }
+    }
+
+    private static Object normalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), normalize(v)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> normalized = new ArrayList<>(list.size());
+            for (Object item : list) {
+                normalized.add(normalize(item));
+            }
+            return normalized;
+        }
+        if (value instanceof String text) {
+            return text.strip().replaceAll("\\s+", " ");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,38 @@
+package com.svastik.workoutextract;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "llm_response_cache", indexes = {
+    @Index(name = "idx_llm_response_cache_last_accessed", columnList = "last_accessed_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LlmResponseCacheEntry {
+    // SHA-256 of the model and the normalized request body
+    @Id
+    @Column(name = "cache_key", length = 64)
+    private String cacheKey;
+
+    @Column(nullable = false)
+    private String model;
+
+    @Column(nullable = false, columnDefinition = "text")
+    private String response;
+
+    @Column(name = "size_bytes", nullable = false)
+    private int sizeBytes;
+
+    @Column(name = "hit_count", nullable = false)
+    private long hitCount;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "last_accessed_at", nullable = false)
+    private Instant lastAccessedAt;
+}
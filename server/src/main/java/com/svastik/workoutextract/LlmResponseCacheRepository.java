@@ -0,0 +1,30 @@
+package com.svastik.workoutextract;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.util.List;
+
+public interface LlmResponseCacheRepository extends JpaRepository<LlmResponseCacheEntry, String> {
+    @Transactional
+    @Modifying
+    @Query("UPDATE LlmResponseCacheEntry e SET e.hitCount = e.hitCount + 1, e.lastAccessedAt = :now " +
+           "WHERE e.cacheKey = :cacheKey")
+    int recordHit(@Param("cacheKey") String cacheKey, @Param("now") Instant now);
+
+    @Query("SELECT COALESCE(SUM(e.sizeBytes), 0) FROM LlmResponseCacheEntry e")
+    long totalSizeBytes();
+
+    // Least recently used first; each entry is [cacheKey, sizeBytes]
+    @Query("SELECT e.cacheKey, e.sizeBytes FROM LlmResponseCacheEntry e ORDER BY e.lastAccessedAt ASC")
+    List<Object[]> findLeastRecentlyUsed(Pageable pageable);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM LlmResponseCacheEntry e WHERE e.lastAccessedAt < :cutoff")
+    int deleteNotAccessedSince(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,34 @@
+package com.svastik.workoutextract;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gemini calls and token counts accumulated over one extraction job, as reported in each
+ * response's usageMetadata. Safe to share between concurrent calls.
+ */
+public class LlmUsage {
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicLong promptTokens = new AtomicLong();
+    private final AtomicLong outputTokens = new AtomicLong();
+
+    public void record(GeminiResponse.UsageMetadata usage) {
+        calls.incrementAndGet();
+        if (usage != null) {
+            promptTokens.addAndGet(usage.promptTokenCount());
+            outputTokens.addAndGet(usage.candidatesTokenCount());
+        }
+    }
+
+    public int calls() {
+        return calls.get();
+    }
+
+    public long promptTokens() {
+        return promptTokens.get();
+    }
+
+    public long outputTokens() {
+        return outputTokens.get();
+    }
+}
@@ -0,0 +1,181 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs external tools (yt-dlp) on behalf of extraction jobs. Commands are launched from an argv
+ * list without a shell, both output streams are drained concurrently so a chatty process can't
+ * block on a full pipe, every run has a deadline after which the whole process tree is killed,
+ * and the number of concurrently running processes is capped independently of the job executor.
+ */
+@Component
+public class ProcessSupervisor {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessSupervisor.class);
+    // Output beyond this is still drained but not kept
+    private static final int MAX_CAPTURED_BYTES = 1024 * 1024;
+
+    private final Semaphore permits;
+    private final Set<Process> liveProcesses = ConcurrentHashMap.newKeySet();
+    private final ExecutorService streamDrainers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter startedCounter;
+    private final Counter killedCounter;
+    private final Counter timedOutCounter;
+
+    public ProcessSupervisor(
+            @Value("${ytdlp.max-concurrent:4}") int maxConcurrent,
+            MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        Gauge.builder("ytdlp.processes.live", liveProcesses, Set::size)
+            .description("yt-dlp processes currently running")
+            .register(meterRegistry);
+        Gauge.builder("ytdlp.processes.waiting", permits, Semaphore::getQueueLength)
+            .description("Jobs waiting for a free yt-dlp slot")
+            .register(meterRegistry);
+        this.startedCounter = Counter.builder("ytdlp.processes.started").register(meterRegistry);
+        this.killedCounter = Counter.builder("ytdlp.processes.killed").register(meterRegistry);
+        this.timedOutCounter = Counter.builder("ytdlp.processes.timed_out").register(meterRegistry);
+    }
+
+    /**
+     * Runs the command and returns its exit code and output. Waiting for a free slot counts
+     * against the timeout; if the deadline passes the process tree is killed and
+     * ProcessTimeoutException is thrown.
+     */
+    public ProcessResult run(String stage, List<String> command, Path workingDirectory, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            if (!permits.tryAcquire(timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                timedOutCounter.increment();
+                throw new ProcessTimeoutException(stage, timeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting to run " + stage, e);
+        }
+
+        Process process = null;
+        try {
+            logger.info("[Process] Starting {}: {}", stage, command);
+            long startedAt = System.nanoTime();
+            process = new ProcessBuilder(command).directory(workingDirectory.toFile()).start();
+            liveProcesses.add(process);
+            startedCounter.increment();
+            process.getOutputStream().close();
+
+            CompletableFuture<String> stdout = drain(process.getInputStream());
+            CompletableFuture<String> stderr = drain(process.getErrorStream());
+
+            long remaining = deadline - System.nanoTime();
+            if (!process.waitFor(Math.max(0, remaining), TimeUnit.NANOSECONDS)) {
+                timedOutCounter.increment();
+                kill(process);
+                logger.error("[Process] {} exceeded its {} deadline and was killed", stage, timeout);
+                throw new ProcessTimeoutException(stage, timeout);
+            }
+            // Grandchildren can keep the pipes open after the main process exits
+            ProcessResult result = new ProcessResult(
+                process.exitValue(),
+                stdout.get(5, TimeUnit.SECONDS),
+                stderr.get(5, TimeUnit.SECONDS),
+                Duration.ofNanos(System.nanoTime() - startedAt));
+            logger.info("[Process] {} exited with code {} after {} ms", stage, result.exitCode(), result.duration().toMillis());
+            return result;
+        } catch (IOException | ExecutionException | TimeoutException e) {
+            if (process != null) {
+                kill(process);
+            }
+            throw new IllegalStateException("Failed to run " + stage + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            if (process != null) {
+                kill(process);
+            }
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running " + stage, e);
+        } finally {
+            if (process != null) {
+                liveProcesses.remove(process);
+            }
+            permits.release();
+        }
+    }
+
+    public int liveProcessCount() {
+        return liveProcesses.size();
+    }
+
+    public long killedProcessCount() {
+        return (long) killedCounter.count();
+    }
+
+    public long timedOutProcessCount() {
+        return (long) timedOutCounter.count();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        liveProcesses.forEach(this::kill);
+        streamDrainers.shutdownNow();
+    }
+
+    private void kill(Process process) {
+        if (!process.isAlive()) {
+            return;
+        }
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+        killedCounter.increment();
+    }
+
+    private CompletableFuture<String> drain(InputStream stream) {
+        return CompletableFuture.supplyAsync(() -> {
+            ByteArrayOutputStream captured = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            try (stream) {
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    int keep = Math.min(read, MAX_CAPTURED_BYTES - captured.size());
+                    if (keep > 0) {
+                        captured.write(buffer, 0, keep);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("[Process] Output stream closed: {}", e.getMessage());
+            }
+            return captured.toString(StandardCharsets.UTF_8);
+        }, streamDrainers);
+    }
+
+    public record ProcessResult(int exitCode, String stdout, String stderr, Duration duration) {
+        /**
+         * Last lines of stderr, for error messages and logs.
+         */
+        public String stderrTail() {
+            String trimmed = stderr.strip();
+            return trimmed.length() <= 500 ? trimmed : trimmed.substring(trimmed.length() - 500);
+        }
+    }
+}
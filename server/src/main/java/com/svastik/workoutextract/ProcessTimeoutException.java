@@ -0,0 +1,19 @@
+package com.svastik.workoutextract;
+
+import java.time.Duration;
+
+/**
+ * Thrown when a supervised process does not finish within its stage deadline.
+ */
+public class ProcessTimeoutException extends RuntimeException {
+    private final String stage;
+
+    public ProcessTimeoutException(String stage, Duration timeout) {
+        super(stage + " did not finish within " + timeout.toMillis() + " ms");
+        this.stage = stage;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+}
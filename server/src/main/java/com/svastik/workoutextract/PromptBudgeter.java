@@ -0,0 +1,210 @@
+package com.svastik.workoutextract;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Keeps prompts within a token budget. Token counts are estimated at four characters per token,
+ * close to what Gemini reports for English captions. A transcript over its budget is cut into
+ * segments of a few dozen words; segments are ranked by workout-signal density (numbers next to
+ * rep/set/time words, "4x10" patterns, exercise names) and the densest ones that fit are kept, in
+ * their original order.
+ */
+@Component
+public class PromptBudgeter {
+    private static final Logger logger = LoggerFactory.getLogger(PromptBudgeter.class);
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int SEGMENT_WORDS = 40;
+    private static final String GAP = " ... ";
+
+    private static final Set<String> UNIT_WORDS = Set.of(
+        "rep", "reps", "set", "sets", "round", "rounds", "second", "seconds", "sec", "secs",
+        "minute", "minutes", "min", "mins", "rest", "each", "side", "per", "times");
+    static final Set<String> EXERCISE_WORDS = Set.of(
+        "squat", "squats", "lunge", "lunges", "deadlift", "deadlifts", "press", "presses", "row", "rows",
+        "curl", "curls", "pushup", "pushups", "push-up", "push-ups", "pullup", "pullups", "pull-up", "pull-ups",
+        "chinup", "chinups", "chin-up", "chin-ups", "dip", "dips", "plank", "planks", "burpee", "burpees",
+        "crunch", "crunches", "raise", "raises", "extension", "extensions", "fly", "flyes", "flies",
+        "thrust", "thrusts", "bridge", "bridges", "jack", "jacks", "climber", "climbers", "swing", "swings",
+        "snatch", "clean", "jerk", "bench", "shrug", "shrugs", "pulldown", "pulldowns", "kickback", "kickbacks",
+        "twist", "twists", "step-up", "step-ups", "situp", "situps", "sit-up", "sit-ups", "hold", "superset",
+        "dumbbell", "dumbbells", "barbell", "kettlebell", "kettlebells", "band", "cable");
+
+    private final int promptTokenBudget;
+
+    public PromptBudgeter(@Value("${extraction.llm.prompt-token-budget:12000}") int promptTokenBudget) {
+        this.promptTokenBudget = promptTokenBudget;
+    }
+
+    public int promptTokenBudget() {
+        return promptTokenBudget;
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        if (text == null) return 0;
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    /**
+     * Returns the transcript unchanged if it fits in {@code tokenBudget}, otherwise its
+     * highest-signal segments joined in transcript order with " ... " where text was dropped.
+     */
+    public String fit(String transcript, int tokenBudget) {
+        if (transcript == null || estimateTokens(transcript) <= tokenBudget) {
+            return transcript;
+        }
+        if (tokenBudget <= 0) {
+            return "";
+        }
+        List<Segment> segments = segment(transcript);
+        List<Segment> ranked = new ArrayList<>(segments);
+        // Densest first; earlier segments win ties so the result is stable
+        ranked.sort(Comparator.comparingDouble(Segment::density).reversed().thenComparingInt(Segment::index));
+
+        boolean[] kept = new boolean[segments.size()];
+        int used = 0;
+        for (Segment segment : ranked) {
+            int cost = estimateTokens(segment.text()) + estimateTokens(GAP);
+            if (used + cost > tokenBudget) continue;
+            kept[segment.index()] = true;
+            used += cost;
+        }
+
+        StringBuilder fitted = new StringBuilder();
+        boolean skipped = false;
+        for (Segment segment : segments) {
+            if (!kept[segment.index()]) {
+                skipped = true;
+                continue;
+            }
+            if (skipped || !fitted.isEmpty()) {
+                fitted.append(skipped ? GAP : " ");
+            }
+            fitted.append(segment.text());
+            skipped = false;
+        }
+        if (skipped) {
+            fitted.append(GAP);
+        }
+        String result = fitted.toString().strip();
+        logger.info("[Budget] Transcript cut from {} to {} tokens ({} of {} segments kept)",
+            estimateTokens(transcript), estimateTokens(result), countKept(kept), segments.size());
+        return result;
+    }
+
+    /**
+     * Splits a transcript at word boundaries into chunks of about {@code chunkTokens}, each
+     * repeating about {@code overlapTokens} from the end of the previous one so an exercise
+     * described across a boundary appears whole in at least one chunk.
+     */
+    public static List<String> chunk(String transcript, int chunkTokens, int overlapTokens) {
+        List<String> chunks = new ArrayList<>();
+        if (transcript == null || transcript.isBlank()) {
+            chunks.add(transcript == null ? "" : transcript);
+            return chunks;
+        }
+        String[] words = transcript.trim().split("\\s+");
+        int chunkChars = chunkTokens * CHARS_PER_TOKEN;
+        int overlapChars = overlapTokens * CHARS_PER_TOKEN;
+        int start = 0;
+        while (start < words.length) {
+            int end = start;
+            int chars = 0;
+            while (end < words.length && (end == start || chars + words[end].length() + 1 <= chunkChars)) {
+                chars += words[end].length() + 1;
+                end++;
+            }
+            chunks.add(String.join(" ", java.util.Arrays.copyOfRange(words, start, end)));
+            if (end == words.length) break;
+            int next = end;
+            int repeated = 0;
+            while (next > start + 1 && repeated + words[next - 1].length() + 1 <= overlapChars) {
+                repeated += words[next - 1].length() + 1;
+                next--;
+            }
+            start = next;
+        }
+        return chunks;
+    }
+
+    private static int countKept(boolean[] kept) {
+        int count = 0;
+        for (boolean k : kept) {
+            if (k) count++;
+        }
+        return count;
+    }
+
+    static List<Segment> segment(String transcript) {
+        List<Segment> segments = new ArrayList<>();
+        String[] words = transcript.trim().split("\\s+");
+        for (int start = 0; start < words.length; start += SEGMENT_WORDS) {
+            int end = Math.min(words.length, start + SEGMENT_WORDS);
+            String text = String.join(" ", java.util.Arrays.copyOfRange(words, start, end));
+            segments.add(new Segment(segments.size(), text, signal(words, start, end)));
+        }
+        return segments;
+    }
+
+    /**
+     * Workout signal of words[start, end): 3 per "4x10"-style token, 2 per number next to a unit
+     * word ("10 reps", "sets of 12"), 1 per exercise or equipment name.
+     */
+    static int signal(String[] words, int start, int end) {
+        int score = 0;
+        for (int i = start; i < end; i++) {
+            String word = normalize(words[i]);
+            if (word.isEmpty()) continue;
+            if (isSetsByReps(word)) {
+                score += 3;
+            } else if (isNumber(word)) {
+                String next = i + 1 < words.length ? normalize(words[i + 1]) : "";
+                String previous = i > 0 ? normalize(words[i - 1]) : "";
+                String beforePrevious = i > 1 ? normalize(words[i - 2]) : "";
+                if (UNIT_WORDS.contains(next) || UNIT_WORDS.contains(previous)
+                    || ("of".equals(previous) && UNIT_WORDS.contains(beforePrevious))) {
+                    score += 2;
+                }
+            } else if (EXERCISE_WORDS.contains(word)) {
+                score += 1;
+            }
+        }
+        return score;
+    }
+
+    private static String normalize(String word) {
+        int from = 0, to = word.length();
+        while (from < to && !Character.isLetterOrDigit(word.charAt(from))) from++;
+        while (to > from && !Character.isLetterOrDigit(word.charAt(to - 1))) to--;
+        return word.substring(from, to).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isNumber(String word) {
+        if (word.isEmpty()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (!Character.isDigit(word.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    // "4x10", "3x8-12"
+    private static boolean isSetsByReps(String word) {
+        int x = word.indexOf('x');
+        return x > 0 && x < word.length() - 1
+            && Character.isDigit(word.charAt(x - 1)) && Character.isDigit(word.charAt(x + 1));
+    }
+
+    record Segment(int index, String text, int signal) {
+        double density() {
+            return (double) signal / Math.max(1, estimateTokens(text));
+        }
+    }
+}
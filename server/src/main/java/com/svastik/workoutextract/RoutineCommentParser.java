@@ -0,0 +1,272 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Fast path for videos whose pinned or top comment already lists the routine, e.g.
+ * "Squat 4x10, RDL 3x8-10 (90s rest), Walking lunges 3x12 each leg". A comment is only used when
+ * every line in it is an exercise with sets x reps or an explicit header ("Day 1:", "# Legs"),
+ * every exercise name contains a known movement, and there are at least {@link #MIN_EXERCISES} of
+ * them; anything else is left to Gemini. The result has the same workout_data shape as the LLM
+ * path, with the stated values marked "present" and rest "missing" when the comment does not give it.
+ */
+@Component
+public class RoutineCommentParser {
+    private static final Logger logger = LoggerFactory.getLogger(RoutineCommentParser.class);
+    static final int MIN_EXERCISES = 2;
+
+    private static final String REPS = "(?<reps>\\d{1,3}(?:\\s*-\\s*\\d{1,3})?|max|amrap|failure)";
+    private static final String EACH = "(?<each>\\s*(?:each(?:\\s+(?:side|leg|arm))?|per\\s+(?:side|leg|arm)|/side|e/s))?";
+    private static final String REST = "(?:\\s*[,(]?\\s*(?:rest\\s*:?\\s*)?(?<rest>\\d{1,3}\\s*(?:s|secs?|seconds|m|mins?|minutes))(?:\\s+rest)?\\s*\\)?)?";
+    // "Squat 4x10", "Bench press: 3 x 8-12 each (60s rest)"
+    private static final Pattern NAME_FIRST = Pattern.compile(
+        "^(?<name>[a-z][a-z'’/&.\\- ]*?)\\s*[:\\-–]?\\s*(?<sets>\\d{1,2})\\s*[x×]\\s*" + REPS + EACH + REST + "\\s*\\.?$");
+    // "4x10 squats"
+    private static final Pattern SETS_FIRST = Pattern.compile(
+        "^(?<sets>\\d{1,2})\\s*[x×]\\s*" + REPS + "\\s+(?<name>[a-z][a-z'’/&.\\- ]*?)" + EACH + REST + "\\s*\\.?$");
+    private static final Pattern REST_ONLY = Pattern.compile("^(?:rest\\s*:?\\s*)?\\d{1,3}\\s*(?:s|secs?|seconds|m|mins?|minutes)(?:\\s+rest)?$");
+    // Explicit headers only: "Day 1 - Legs", "Week 2", "Leg day"; anything else must parse as an exercise
+    private static final Pattern HEADER = Pattern.compile("^(?:(?:day|week)\\s*\\d{1,2}\\b.*|[a-z ]{1,20}\\sday\\s*-?)$");
+    private static final Pattern SETS_X_REPS = Pattern.compile("\\d\\s*[x×]\\s*\\d");
+    private static final Pattern BULLET = Pattern.compile("^(?:[-*•·>]+|\\d{1,2}[.)])\\s*");
+
+    private static final Set<String> MOVEMENT_WORDS = new HashSet<>(PromptBudgeter.EXERCISE_WORDS);
+    static {
+        MOVEMENT_WORDS.addAll(List.of(
+            "rdl", "rdls", "ohp", "pull", "pulls", "push", "pushdown", "pushdowns", "calf", "calves", "hip",
+            "skullcrusher", "skullcrushers", "pullover", "pullovers", "lateral", "laterals", "carry", "carries",
+            "sprint", "sprints", "jump", "jumps", "goblet", "hack", "bulgarian", "step", "steps", "facepull",
+            "facepulls", "hinge", "hinges", "good", "mornings", "sissy", "nordic", "nordics", "pistol", "pistols"));
+    }
+
+    private static final Map<String, List<String>> MUSCLES = new LinkedHashMap<>();
+    static {
+        MUSCLES.put("leg press", List.of("Quads", "Glutes"));
+        MUSCLES.put("leg extension", List.of("Quads"));
+        MUSCLES.put("leg curl", List.of("Hamstrings"));
+        MUSCLES.put("squat", List.of("Quads", "Glutes"));
+        MUSCLES.put("lunge", List.of("Quads", "Glutes"));
+        MUSCLES.put("step", List.of("Quads", "Glutes"));
+        MUSCLES.put("deadlift", List.of("Hamstrings", "Glutes", "Lower Back"));
+        MUSCLES.put("rdl", List.of("Hamstrings", "Glutes"));
+        MUSCLES.put("hip", List.of("Glutes"));
+        MUSCLES.put("calf", List.of("Calves"));
+        MUSCLES.put("bench", List.of("Chest", "Triceps"));
+        MUSCLES.put("push", List.of("Chest", "Triceps"));
+        MUSCLES.put("dip", List.of("Chest", "Triceps"));
+        MUSCLES.put("fly", List.of("Chest"));
+        MUSCLES.put("press", List.of("Shoulders", "Triceps"));
+        MUSCLES.put("ohp", List.of("Shoulders", "Triceps"));
+        MUSCLES.put("lateral", List.of("Shoulders"));
+        MUSCLES.put("row", List.of("Back", "Biceps"));
+        MUSCLES.put("pull", List.of("Back", "Biceps"));
+        MUSCLES.put("chin", List.of("Back", "Biceps"));
+        MUSCLES.put("curl", List.of("Biceps"));
+        MUSCLES.put("extension", List.of("Triceps"));
+        MUSCLES.put("skullcrusher", List.of("Triceps"));
+        MUSCLES.put("plank", List.of("Core"));
+        MUSCLES.put("crunch", List.of("Core"));
+        MUSCLES.put("twist", List.of("Core"));
+        MUSCLES.put("raise", List.of("Core"));
+    }
+    private static final Set<String> LOWER_BODY = Set.of("Quads", "Glutes", "Hamstrings", "Calves", "Lower Back");
+    private static final Map<String, String> EQUIPMENT = new LinkedHashMap<>();
+    static {
+        EQUIPMENT.put("dumbbell", "Dumbbells");
+        EQUIPMENT.put("barbell", "Barbell");
+        EQUIPMENT.put("kettlebell", "Kettlebell");
+        EQUIPMENT.put("cable", "Cable Machine");
+        EQUIPMENT.put("band", "Resistance Band");
+        EQUIPMENT.put("machine", "Machine");
+        EQUIPMENT.put("bench", "Bench");
+    }
+
+    private final boolean enabled;
+    private final Counter resolved;
+    private final Counter fellBack;
+
+    public RoutineCommentParser(MeterRegistry meterRegistry,
+                                @Value("${extraction.fast-path.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.resolved = Counter.builder("extraction.fast_path").tag("result", "resolved").register(meterRegistry);
+        this.fellBack = Counter.builder("extraction.fast_path").tag("result", "llm").register(meterRegistry);
+    }
+
+    /**
+     * Workout data read from the first golden comment that fully describes a routine, or empty when
+     * the LLM is needed.
+     */
+    public Optional<Map<String, Object>> parse(List<String> goldenComments) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        for (String comment : goldenComments) {
+            List<ParsedExercise> exercises = parseComment(comment);
+            if (exercises != null) {
+                resolved.increment();
+                logger.info("[Extract] Routine read from a comment: {} exercises", exercises.size());
+                return Optional.of(toWorkout(exercises));
+            }
+        }
+        fellBack.increment();
+        return Optional.empty();
+    }
+
+    /**
+     * The exercises of a comment, or null unless every line is a confidently parsed exercise or a
+     * header and there are at least {@link #MIN_EXERCISES} exercises.
+     */
+    static List<ParsedExercise> parseComment(String comment) {
+        if (comment == null) return null;
+        List<ParsedExercise> exercises = new ArrayList<>();
+        for (String line : comment.split("\\R")) {
+            String cleaned = stripSymbols(line).trim();
+            if (cleaned.isEmpty()) continue;
+            if (isHeader(cleaned)) continue;
+            ParsedExercise previous = null;
+            for (String piece : cleaned.split("[,;|]")) {
+                String item = BULLET.matcher(piece.trim()).replaceFirst("").trim();
+                if (item.isEmpty()) continue;
+                if (previous != null && previous.rest() == null && REST_ONLY.matcher(item.toLowerCase(Locale.ROOT)).matches()) {
+                    // "Squat 4x10, rest 60s"
+                    exercises.set(exercises.size() - 1, previous = previous.withRest(restOf(item)));
+                    continue;
+                }
+                ParsedExercise exercise = parseItem(item);
+                if (exercise == null) {
+                    return null;
+                }
+                exercises.add(exercise);
+                previous = exercise;
+            }
+        }
+        return exercises.size() >= MIN_EXERCISES ? exercises : null;
+    }
+
+    private static ParsedExercise parseItem(String item) {
+        String lower = item.toLowerCase(Locale.ROOT);
+        Matcher matcher = NAME_FIRST.matcher(lower);
+        if (!matcher.matches()) {
+            matcher = SETS_FIRST.matcher(lower);
+            if (!matcher.matches()) return null;
+        }
+        int nameStart = matcher.start("name");
+        String name = item.substring(nameStart, matcher.end("name")).trim();
+        if (name.isEmpty() || name.split("\\s+").length > 5 || !hasMovementWord(name)) {
+            return null;
+        }
+        String reps = matcher.group("reps").replaceAll("\\s+", "");
+        if (matcher.group("each") != null) {
+            reps = reps + " " + matcher.group("each").trim();
+        }
+        String rest = matcher.group("rest") != null ? restOf(matcher.group("rest")) : null;
+        return new ParsedExercise(name, matcher.group("sets"), reps, rest);
+    }
+
+    private static boolean isHeader(String line) {
+        String lower = line.toLowerCase(Locale.ROOT);
+        return line.length() <= 30 && !SETS_X_REPS.matcher(lower).find()
+            && (line.endsWith(":") || line.startsWith("#") || HEADER.matcher(lower).matches());
+    }
+
+    private static boolean hasMovementWord(String text) {
+        for (String word : text.toLowerCase(Locale.ROOT).split("[^a-z'’-]+")) {
+            if (MOVEMENT_WORDS.contains(word)) return true;
+            for (String part : word.split("-")) {
+                if (MOVEMENT_WORDS.contains(part)) return true;
+            }
+        }
+        return false;
+    }
+
+    private static String restOf(String text) {
+        Matcher digits = Pattern.compile("(\\d{1,3})\\s*([a-z]+)").matcher(text.toLowerCase(Locale.ROOT));
+        if (!digits.find()) return null;
+        return digits.group(1) + (digits.group(2).startsWith("m") ? " min" : "s");
+    }
+
+    // Emoji and other pictographs ("🔥 Squat 4x10 💪") carry nothing the parser needs
+    private static String stripSymbols(String line) {
+        StringBuilder kept = new StringBuilder(line.length());
+        line.codePoints()
+            .filter(cp -> Character.getType(cp) != Character.OTHER_SYMBOL && !Character.isSupplementaryCodePoint(cp)
+                && cp != 0xFE0F && cp != 0x200D)
+            .forEach(kept::appendCodePoint);
+        return kept.toString();
+    }
+
+    static Map<String, Object> toWorkout(List<ParsedExercise> parsed) {
+        List<Map<String, Object>> exercises = new ArrayList<>();
+        Set<String> muscles = new LinkedHashSet<>();
+        Set<String> equipment = new LinkedHashSet<>();
+        for (ParsedExercise exercise : parsed) {
+            String lower = exercise.name().toLowerCase(Locale.ROOT);
+            List<String> targets = new ArrayList<>();
+            for (Map.Entry<String, List<String>> entry : MUSCLES.entrySet()) {
+                if (lower.contains(entry.getKey())) {
+                    targets = entry.getValue();
+                    break;
+                }
+            }
+            muscles.addAll(targets);
+            for (Map.Entry<String, String> item : EQUIPMENT.entrySet()) {
+                if (lower.contains(item.getKey())) {
+                    equipment.add(item.getValue());
+                }
+            }
+            boolean lowerBody = !targets.isEmpty() && LOWER_BODY.containsAll(targets);
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("name", exercise.name());
+            map.put("reps", exercise.reps());
+            map.put("rest", exercise.rest());
+            map.put("sets", exercise.sets());
+            map.put("emoji", lowerBody ? "🦵" : "💪");
+            map.put("notes", "");
+            map.put("difficulty", "Medium");
+            map.put("reps_transparency", "present");
+            map.put("sets_transparency", "present");
+            map.put("rest_transparency", exercise.rest() != null ? "present" : "missing");
+            exercises.add(map);
+        }
+
+        Map<String, Object> workout = new LinkedHashMap<>();
+        workout.put("equipment", equipment.isEmpty() ? List.of("Bodyweight") : new ArrayList<>(equipment));
+        workout.put("exercises", exercises);
+        workout.put("workoutType", workoutType(muscles));
+        workout.put("targetMuscles", new ArrayList<>(muscles));
+        return workout;
+    }
+
+    private static String workoutType(Set<String> muscles) {
+        if (muscles.isEmpty()) return "Full Body";
+        boolean lower = muscles.stream().anyMatch(LOWER_BODY::contains);
+        boolean upper = muscles.stream().anyMatch(muscle -> !LOWER_BODY.contains(muscle) && !muscle.equals("Core"));
+        if (lower && upper) return "Full Body";
+        if (lower) return "Lower Body";
+        if (upper) return "Upper Body";
+        return "Core";
+    }
+
+    record ParsedExercise(String name, String sets, String reps, String rest) {
+        ParsedExercise withRest(String rest) {
+            return new ParsedExercise(name, sets, reps, rest);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.svastik.workoutextract;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Hands out an isolated working directory per extraction job, so yt-dlp output never accumulates
+ * in the process working directory. Point extraction.scratch.root at a tmpfs such as /dev/shm to
+ * keep the files off disk entirely.
+ */
+@Component
+public class ScratchDirectories {
+    private static final Logger logger = LoggerFactory.getLogger(ScratchDirectories.class);
+    private static final String PREFIX = "job-";
+
+    private final Path root;
+    private final Duration leftoverAge;
+
+    public ScratchDirectories(
+            @Value("${extraction.scratch.root:${java.io.tmpdir}/workoutextract}") String root,
+            @Value("${ytdlp.fetch-timeout:PT3M}") Duration fetchTimeout) {
+        this.root = Paths.get(root);
+        // A job writes to its directory during each of its (at most two) yt-dlp runs
+        this.leftoverAge = fetchTimeout.multipliedBy(2);
+    }
+
+    public ScratchDirectory create(UUID jobId) throws IOException {
+        Files.createDirectories(root);
+        Path directory = Files.createDirectory(root.resolve(PREFIX + jobId));
+        logger.info("[Scratch] Created {}", directory);
+        return new ScratchDirectory(directory);
+    }
+
+    /**
+     * Removes directories left behind by jobs that were running when the process last stopped.
+     * Runs while this bean is initialized, so before any scheduled poller, startup listener or the
+     * backfill runner can create a directory of its own. Other instances may share the root, so only
+     * directories nothing has written to for twice the yt-dlp fetch timeout are removed.
+     */
+    @PostConstruct
+    public void removeLeftovers() {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(leftoverAge);
+        int removed = 0;
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(root, PREFIX + "*")) {
+            for (Path directory : leftovers) {
+                if (lastModified(directory).isBefore(cutoff)) {
+                    deleteRecursively(directory);
+                    removed++;
+                }
+            }
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("[Scratch] Failed to clean up leftovers in {}: {}", root, e.getMessage());
+        }
+        if (removed > 0) {
+            logger.info("[Scratch] Removed {} leftover job directories from {}", removed, root);
+        }
+    }
+
+    // The latest write anywhere in the directory, since yt-dlp writes into it rather than to it
+    private static Instant lastModified(Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            FileTime latest = FileTime.fromMillis(0);
+            for (Path path : paths.toList()) {
+                FileTime modified = Files.getLastModifiedTime(path);
+                if (modified.compareTo(latest) > 0) {
+                    latest = modified;
+                }
+            }
+            return latest.toInstant();
+        }
+    }
+
+    static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * A job's working directory; closing it deletes the directory and everything in it.
+     */
+    public record ScratchDirectory(Path path) implements AutoCloseable {
+        public Path resolve(String fileName) {
+            return path.resolve(fileName);
+        }
+
+        @Override
+        public void close() {
+            try {
+                deleteRecursively(path);
+                logger.info("[Scratch] Removed {}", path);
+            } catch (IOException e) {
+                logger.warn("[Scratch] Failed to remove {}: {}", path, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.svastik.workoutextract;
+
+/**
+ * Accumulates caption lines into one space-separated transcript. Each line is scanned once:
+ * inline tags such as {@code <c>} and {@code <00:00:01.200>}, [bracketed] and (parenthesised)
+ * annotations, ellipses and filler words are dropped and whitespace is collapsed. A line equal to
+ * one of the last few emitted lines is skipped, which removes rolling auto-caption repeats.
+ */
+class TranscriptCleaner {
+    private static final int DEDUPE_WINDOW = 3;
+
+    private final StringBuilder transcript = new StringBuilder();
+    private final StringBuilder line = new StringBuilder();
+    private final String[] recent = new String[DEDUPE_WINDOW];
+    private int recentNext;
+
+    void line(CharSequence raw) {
+        line.setLength(0);
+        int depth = 0;
+        int wordStart = 0;
+        int length = raw.length();
+        for (int i = 0; i < length; i++) {
+            char c = raw.charAt(i);
+            if (c == '<') {
+                int end = indexOf(raw, '>', i + 1);
+                if (end < 0) break;
+                i = end;
+                continue;
+            }
+            if (c == '[' || c == '(') {
+                depth++;
+                continue;
+            }
+            if ((c == ']' || c == ')') && depth > 0) {
+                depth--;
+                continue;
+            }
+            if (depth > 0) {
+                continue;
+            }
+            if (c == '.' && i + 2 < length && raw.charAt(i + 1) == '.' && raw.charAt(i + 2) == '.') {
+                i += 2;
+                continue;
+            }
+            if (c == '&') {
+                int end = indexOf(raw, ';', i + 1);
+                char decoded = end > 0 && end - i <= 6 ? decodeEntity(raw, i + 1, end) : 0;
+                if (decoded != 0) {
+                    c = decoded;
+                    i = end;
+                }
+            }
+            if (Character.isWhitespace(c)) {
+                wordStart = endWord(wordStart);
+                continue;
+            }
+            line.append(c);
+        }
+        endWord(wordStart);
+        int end = line.length();
+        if (end > 0 && line.charAt(end - 1) == ' ') {
+            line.setLength(end - 1);
+        }
+        if (line.isEmpty()) {
+            return;
+        }
+        String text = line.toString();
+        for (String previous : recent) {
+            if (text.equals(previous)) {
+                return;
+            }
+        }
+        recent[recentNext] = text;
+        recentNext = (recentNext + 1) % DEDUPE_WINDOW;
+        if (!transcript.isEmpty()) {
+            transcript.append(' ');
+        }
+        transcript.append(text);
+    }
+
+    /**
+     * The cleaned transcript, or an empty string if every line was dropped.
+     */
+    String result() {
+        return transcript.toString();
+    }
+
+    /**
+     * Closes the word that started at {@code wordStart}: drops it if it is a filler, otherwise
+     * terminates it with a single space. Returns where the next word starts.
+     */
+    private int endWord(int wordStart) {
+        int end = line.length();
+        if (end == wordStart) {
+            return wordStart;
+        }
+        if (isFiller(wordStart, end)) {
+            line.setLength(wordStart);
+            return wordStart;
+        }
+        // "you know" is a two-word filler: drop "know" together with a preceding "you"
+        if (matches(wordStart, end, "know") && wordStart >= 4 && matches(wordStart - 4, wordStart - 1, "you")
+                && (wordStart == 4 || line.charAt(wordStart - 5) == ' ')) {
+            line.setLength(wordStart - 4);
+            return wordStart - 4;
+        }
+        line.append(' ');
+        return line.length();
+    }
+
+    private boolean isFiller(int start, int end) {
+        // Trailing punctuation belongs to the filler ("um," / "uh.")
+        while (end > start && isPunctuation(line.charAt(end - 1))) {
+            end--;
+        }
+        return matches(start, end, "like") || matches(start, end, "um") || matches(start, end, "uh");
+    }
+
+    private boolean matches(int start, int end, String word) {
+        if (end - start != word.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (line.charAt(start + i) != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    private static boolean isPunctuation(char c) {
+        return c == ',' || c == '.' || c == '!' || c == '?';
+    }
+
+    private static int indexOf(CharSequence text, char target, int from) {
+        for (int i = from; i < text.length(); i++) {
+            if (text.charAt(i) == target) return i;
+        }
+        return -1;
+    }
+
+    private static char decodeEntity(CharSequence text, int start, int end) {
+        String entity = text.subSequence(start, end).toString();
+        return switch (entity) {
+            case "amp" -> '&';
+            case "lt" -> '<';
+            case "gt" -> '>';
+            case "quot" -> '"';
+            case "#39", "apos" -> '\'';
+            case "nbsp" -> ' ';
+            default -> 0;
+        };
+    }
+}
@@ -0,0 +1,129 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Turns a yt-dlp subtitle file (WebVTT or YouTube JSON3) into prompt-ready plain text in a single
+ * pass: timing lines, inline tags, bracketed annotations and filler words are dropped, and the
+ * repeated lines of YouTube's rolling auto-captions are collapsed so each spoken line appears once.
+ */
+@Component
+public class TranscriptReader {
+    private final JsonFactory jsonFactory;
+
+    public TranscriptReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Reads a .vtt or .json3/.json subtitle file; returns null when there is no file.
+     */
+    public String read(Path subtitles) throws IOException {
+        if (subtitles == null || !Files.exists(subtitles)) {
+            return null;
+        }
+        String name = subtitles.getFileName().toString();
+        if (name.endsWith(".json3") || name.endsWith(".json")) {
+            try (JsonParser parser = jsonFactory.createParser(subtitles.toFile())) {
+                return readJson3(parser);
+            }
+        }
+        try (Reader reader = Files.newBufferedReader(subtitles, StandardCharsets.UTF_8)) {
+            return readVtt(reader);
+        }
+    }
+
+    public String readVtt(Reader source) throws IOException {
+        BufferedReader reader = source instanceof BufferedReader buffered ? buffered : new BufferedReader(source);
+        TranscriptCleaner cleaner = new TranscriptCleaner();
+        boolean inCue = false;
+        boolean inHeader = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            // Only an empty line ends a cue; auto-captions use whitespace-only lines inside cues
+            if (line.isEmpty()) {
+                inCue = false;
+                inHeader = false;
+                continue;
+            }
+            if (inHeader) {
+                // WEBVTT, Kind: and Language: lines up to the first blank line
+                continue;
+            }
+            if (line.indexOf("-->") >= 0) {
+                inCue = true;
+            } else if (inCue) {
+                cleaner.line(line);
+            }
+            // Anything else is a cue identifier or a NOTE/STYLE block
+        }
+        return cleaner.result();
+    }
+
+    /**
+     * YouTube JSON3: {"events": [{"segs": [{"utf8": "..."}, ...]}, ...]}. Segments of one event are
+     * concatenated and split on newlines into caption lines.
+     */
+    String readJson3(JsonParser parser) throws IOException {
+        TranscriptCleaner cleaner = new TranscriptCleaner();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON3 subtitle object");
+        }
+        StringBuilder event = new StringBuilder();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (!"events".equals(field) || value != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                event.setLength(0);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String eventField = parser.currentName();
+                    JsonToken eventValue = parser.nextToken();
+                    if ("segs".equals(eventField) && eventValue == JsonToken.START_ARRAY) {
+                        readSegments(parser, event);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                int start = 0;
+                for (int i = 0; i <= event.length(); i++) {
+                    if (i == event.length() || event.charAt(i) == '\n') {
+                        if (i > start) {
+                            cleaner.line(event.subSequence(start, i));
+                        }
+                        start = i + 1;
+                    }
+                }
+            }
+        }
+        return cleaner.result();
+    }
+
+    private void readSegments(JsonParser parser, StringBuilder event) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("utf8".equals(field) && value == JsonToken.VALUE_STRING) {
+                    event.append(parser.getText());
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+}
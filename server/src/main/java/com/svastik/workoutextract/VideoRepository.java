@@ -1,10 +1,25 @@
 package com.svastik.workoutextract;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.List;
 
 public interface VideoRepository extends JpaRepository<Video, Long> {
     Optional<Video> findByYoutubeVideoId(String youtubeVideoId);
     List<Video> findAllByCreatorId(Long creatorId);
-} 
\ No newline at end of file
+
+    // Keyset page in id order; each entry is [id, youtubeVideoId]
+    @Query("SELECT v.id, v.youtubeVideoId FROM Video v WHERE v.id > :afterId ORDER BY v.id ASC")
+    List<Object[]> findKeysAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("SELECT COUNT(v) FROM Video v WHERE v.id > :afterId")
+    long countAfter(@Param("afterId") long afterId);
+
+    // The given video IDs that are already in the catalog
+    @Query("SELECT v.youtubeVideoId FROM Video v WHERE v.youtubeVideoId IN :youtubeVideoIds")
+    List<String> findExistingYoutubeVideoIds(@Param("youtubeVideoIds") Collection<String> youtubeVideoIds);
+}
\ No newline at end of file
@@ -0,0 +1,786 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Turns a video's comments and transcript into workout data with Gemini. Two modes:
+ * <ul>
+ *   <li>SINGLE: one call whose schema carries an observed and an estimated value for reps, sets
+ *   and rest, and falls back to the video title by itself when the transcript is unusable. Long
+ *   transcripts switch to CHUNKED: the same call on overlapping chunks in parallel, merged by
+ *   WorkoutMerger.</li>
+ *   <li>STAGED: the original flow of an extraction call, an estimation call for missing values and,
+ *   when no exercises were found, a metadata-based call.</li>
+ * </ul>
+ * Both produce the same workout_data shape, including the {@code *_transparency} flags.
+ * extraction.llm.single-call-ratio splits jobs between the modes so latency and token use can be
+ * compared on the same traffic: see the extraction.llm.* metrics, tagged by mode.
+ */
+@Component
+public class WorkoutAnalyzer {
+    private static final Logger logger = LoggerFactory.getLogger(WorkoutAnalyzer.class);
+
+    public enum Mode {
+        SINGLE, CHUNKED, STAGED;
+
+        public String tag() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * The workout plus what it cost: transcript tokens before and after budgeting (summed over
+     * chunks), and the Gemini calls and tokens reported back.
+     */
+    public record Analysis(Map<String, Object> workout, Mode mode, LlmUsage usage,
+                           int transcriptTokens, int transcriptTokensSent, int chunks) {
+    }
+
+    private final GeminiClient geminiClient;
+    private final PromptBudgeter promptBudgeter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final double singleCallRatio;
+
+    // Single-call transcripts longer than this are split into overlapping chunks
+    @Value("${extraction.llm.chunking.threshold-tokens:6000}")
+    private int chunkingThresholdTokens = 6000;
+
+    @Value("${extraction.llm.chunking.chunk-tokens:4000}")
+    private int chunkTokens = 4000;
+
+    @Value("${extraction.llm.chunking.overlap-tokens:200}")
+    private int overlapTokens = 200;
+
+    @Value("${extraction.llm.chunking.max-chunks:8}")
+    private int maxChunks = 8;
+
+    public WorkoutAnalyzer(
+            GeminiClient geminiClient,
+            PromptBudgeter promptBudgeter,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${extraction.llm.single-call-ratio:1.0}") double singleCallRatio) {
+        this.geminiClient = geminiClient;
+        this.promptBudgeter = promptBudgeter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.singleCallRatio = singleCallRatio;
+    }
+
+    /**
+     * Extracts the workout in a mode picked according to extraction.llm.single-call-ratio. Transport
+     * failures that outlast the deadline are thrown; unusable answers end in the fallback workout.
+     */
+    public Analysis analyze(String title, String uploader, List<String> goldenComments, String transcript, Instant deadline) {
+        Mode mode = ThreadLocalRandom.current().nextDouble() < singleCallRatio ? Mode.SINGLE : Mode.STAGED;
+        return analyze(mode, title, uploader, goldenComments, transcript, deadline);
+    }
+
+    Analysis analyze(Mode mode, String title, String uploader, List<String> goldenComments, String transcript, Instant deadline) {
+        if (!geminiClient.isConfigured()) {
+            throw new RuntimeException("GOOGLE_API_KEY is not configured");
+        }
+        String goldenCommentsText = String.join("\n", goldenComments);
+        int transcriptTokens = PromptBudgeter.estimateTokens(transcript);
+        if (mode == Mode.SINGLE && transcriptTokens > chunkingThresholdTokens) {
+            mode = Mode.CHUNKED;
+        }
+        // The transcript (or each chunk of it) gets whatever the rest of the prompt leaves of the budget
+        String promptWithoutTranscript = mode == Mode.STAGED
+            ? createStagedPrompt(goldenCommentsText, "")
+            : createSingleCallPrompt(title, uploader, goldenCommentsText, "");
+        int transcriptBudget = promptBudgeter.promptTokenBudget() - PromptBudgeter.estimateTokens(promptWithoutTranscript);
+        List<String> chunks;
+        if (mode == Mode.CHUNKED) {
+            // Long golden comments can leave less than a chunk, or less than the overlap, for the
+            // transcript; keep each chunk at least twice the overlap so every one still advances
+            int chunkSize = Math.max(1, Math.max(Math.min(chunkTokens, transcriptBudget), 2 * overlapTokens));
+            // Past max-chunks, the lowest-signal parts of the transcript are dropped first
+            String covered = promptBudgeter.fit(transcript, maxChunks * (chunkSize - overlapTokens));
+            chunks = PromptBudgeter.chunk(covered, chunkSize, overlapTokens);
+            if (chunks.size() > maxChunks) {
+                // Word boundaries can leave a sliver past the last full chunk
+                chunks = chunks.subList(0, maxChunks);
+            }
+        } else {
+            chunks = java.util.Collections.singletonList(promptBudgeter.fit(transcript, transcriptBudget));
+        }
+        int transcriptTokensSent = chunks.stream().mapToInt(PromptBudgeter::estimateTokens).sum();
+
+        LlmUsage usage = new LlmUsage();
+        long startedAt = System.nanoTime();
+        Map<String, Object> workout = switch (mode) {
+            case SINGLE -> extractInOneCall(title, uploader, goldenComments, chunks.get(0), deadline, usage);
+            case CHUNKED -> extractInChunks(title, uploader, goldenComments, chunks, deadline, usage);
+            case STAGED -> extractInStages(title, uploader, goldenComments, chunks.get(0), deadline, usage);
+        };
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+        Timer.builder("extraction.llm.duration").tag("mode", mode.tag()).register(meterRegistry).record(elapsed);
+        DistributionSummary.builder("extraction.llm.calls").tag("mode", mode.tag()).register(meterRegistry).record(usage.calls());
+        DistributionSummary.builder("extraction.llm.tokens").tag("mode", mode.tag()).tag("direction", "prompt")
+            .register(meterRegistry).record(usage.promptTokens());
+        DistributionSummary.builder("extraction.llm.tokens").tag("mode", mode.tag()).tag("direction", "output")
+            .register(meterRegistry).record(usage.outputTokens());
+        logger.info("[Extract] LLM {} mode: transcript {} of {} tokens sent in {} chunk(s); {} calls, {} prompt tokens in, {} output tokens out in {} ms",
+            mode.tag(), transcriptTokensSent, transcriptTokens, chunks.size(), usage.calls(), usage.promptTokens(), usage.outputTokens(),
+            elapsed.toMillis());
+        return new Analysis(workout, mode, usage, transcriptTokens, transcriptTokensSent, chunks.size());
+    }
+
+    private Map<String, Object> extractInOneCall(String title, String uploader, List<String> goldenComments,
+                                                 String transcript, Instant deadline, LlmUsage usage) {
+        String prompt = createSingleCallPrompt(title, uploader, String.join("\n", goldenComments), transcript);
+        logger.info("[Extract] Single-call prompt constructed. Length: {}", prompt.length());
+        logger.info("[Extract] Golden comments count: {}", goldenComments.size());
+        return toWorkout(requestExtraction(prompt, deadline, usage));
+    }
+
+    /**
+     * Map-reduce over transcript chunks: every chunk is extracted concurrently (the Gemini limiter
+     * still bounds how many calls are in flight) and WorkoutMerger combines the answers. Failed
+     * chunks are skipped unless all of them fail.
+     */
+    private Map<String, Object> extractInChunks(String title, String uploader, List<String> goldenComments,
+                                                List<String> chunks, Instant deadline, LlmUsage usage) {
+        String goldenCommentsText = String.join("\n", goldenComments);
+        List<WorkoutExtraction> extractions = new ArrayList<>();
+        RuntimeException failure = null;
+        int failed = 0;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<WorkoutExtraction>> pending = new ArrayList<>();
+            for (String chunk : chunks) {
+                String prompt = createSingleCallPrompt(title, uploader, goldenCommentsText, chunk);
+                pending.add(executor.submit(() -> requestExtraction(prompt, deadline, usage)));
+            }
+            for (Future<WorkoutExtraction> future : pending) {
+                try {
+                    extractions.add(future.get());
+                } catch (ExecutionException e) {
+                    failed++;
+                    failure = e.getCause() instanceof RuntimeException runtime ? runtime : new IllegalStateException(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while extracting transcript chunks", e);
+                }
+            }
+        }
+        if (failed == chunks.size() && failure != null) {
+            throw failure;
+        }
+        if (failed > 0) {
+            logger.warn("[Extract] {} of {} transcript chunks failed, merging the rest: {}", failed, chunks.size(), failure.getMessage());
+        }
+        WorkoutExtraction merged = WorkoutMerger.merge(extractions);
+        logger.info("[Extract] Merged {} chunk extractions into {} exercises", extractions.size(), merged.exercises().size());
+        return toWorkout(merged);
+    }
+
+    // One JSON-mode call; null when the answer is unusable, thrown when Gemini could not be reached
+    private WorkoutExtraction requestExtraction(String prompt, Instant deadline, LlmUsage usage) {
+        try {
+            return geminiClient.generateStructured(prompt, WorkoutExtraction.RESPONSE_SCHEMA, WorkoutExtraction.class, deadline, usage);
+        } catch (GeminiException e) {
+            if (!e.isContentError()) {
+                throw e;
+            }
+            logger.error("[Extract] LLM returned unusable content: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private Map<String, Object> toWorkout(WorkoutExtraction extraction) {
+        Map<String, Object> workout = new LinkedHashMap<>();
+        if (extraction == null || extraction.exercises() == null || extraction.exercises().isEmpty()) {
+            logger.warn("[Extract] Single-call extraction returned no exercises");
+            createFallbackWorkout(workout);
+            return workout;
+        }
+        List<Map<String, Object>> exercises = new ArrayList<>();
+        for (ExtractedExercise exercise : extraction.exercises()) {
+            exercises.add(toExerciseMap(exercise));
+        }
+        workout.put("equipment", extraction.equipment() != null ? extraction.equipment() : List.of());
+        workout.put("exercises", exercises);
+        workout.put("workoutType", extraction.workoutType());
+        workout.put("targetMuscles", extraction.targetMuscles() != null ? extraction.targetMuscles() : List.of());
+        if (extraction.basedOnMetadata()) {
+            workout.put("llmAdjusted", true);
+            workout.put("adjustmentReason", "corrupted_transcript");
+            logger.info("[Extract] Workout built from video metadata, marked as LLM adjusted");
+        }
+        logger.info("[Extract] Single-call extraction returned {} exercises", exercises.size());
+        return workout;
+    }
+
+    /**
+     * Same fields and flags as the staged flow: a value stated in the video is used and marked
+     * "present", otherwise the estimate fills in and is marked "missing".
+     */
+    static Map<String, Object> toExerciseMap(ExtractedExercise exercise) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("name", exercise.name());
+        map.put("reps", pick(exercise.repsObserved(), exercise.repsEstimated()));
+        map.put("rest", pick(exercise.restObserved(), exercise.restEstimated()));
+        map.put("sets", pick(exercise.setsObserved(), exercise.setsEstimated()));
+        map.put("emoji", exercise.emoji());
+        map.put("notes", exercise.notes());
+        map.put("difficulty", exercise.difficulty());
+        map.put("reps_transparency", isMissing(exercise.repsObserved()) ? "missing" : "present");
+        map.put("sets_transparency", isMissing(exercise.setsObserved()) ? "missing" : "present");
+        map.put("rest_transparency", isMissing(exercise.restObserved()) ? "missing" : "present");
+        return map;
+    }
+
+    private static String pick(String observed, String estimated) {
+        if (!isMissing(observed)) return observed;
+        return isMissing(estimated) ? null : estimated;
+    }
+
+    private static boolean isMissing(String value) {
+        if (value == null) return true;
+        String trimmed = value.trim();
+        return trimmed.isEmpty() || "null".equalsIgnoreCase(trimmed) || "undefined".equalsIgnoreCase(trimmed);
+    }
+
+    private String createSingleCallPrompt(String title, String uploader, String goldenCommentsText, String transcript) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("You are an expert fitness data extractor. Your task is to analyze the provided video transcript and user comments to create a complete, structured workout plan in JSON format.\n\n")
+            .append("**Instructions:**\n")
+            .append("1.  **Prioritize User Comments:** The user comments are highly likely to contain the precise sets and reps. Use them as the primary source for the 'exercises' array.\n")
+            .append("2.  **Use Transcript for Context:** Use the video transcript to fill in missing details, such as exercise names, detailed notes, workout type, and target muscles.\n")
+            .append("3.  **Observed vs. Estimated:** For 'reps', 'sets' and 'rest', put the value stated in the comments or transcript in the '...Observed' field, or `null` if no source states it. Never guess an observed value. ")
+            .append("Always fill the '...Estimated' field: the observed value when there is one, otherwise a realistic estimate from exercise science (reps like '8-12' or 'till failure', sets like '3-4', rest like '60s' or '2-3 min').\n")
+            .append("4.  **Be Conservative:** Only include exercises where you can confidently identify the exercise name. If you're unsure about an exercise, omit it.\n")
+            .append("5.  **Unusable Transcript:** If the comments and transcript contain no identifiable exercises (for example because the transcript is corrupted or missing), create the workout from the video title and creator instead and set 'basedOnMetadata' to true. ")
+            .append("If the title names a number of exercises (like '25 BEST DUMBBELL EXERCISES'), include exactly that many different exercises. Otherwise set 'basedOnMetadata' to false.\n\n")
+            .append("---\n")
+            .append("**DATA STARTS HERE**\n\n")
+            .append("**[Video Information]:**\n")
+            .append("Title: ").append(title).append("\n")
+            .append("Creator: ").append(uploader).append("\n\n")
+            .append("**[User Comments - High Priority for Sets/Reps]:**\n")
+            .append(goldenCommentsText).append("\n\n")
+            .append("**[Video Transcript - For Context and Notes]:**\n")
+            .append(transcript);
+        return prompt.toString();
+    }
+
+    private Map<String, Object> extractInStages(String title, String uploader, List<String> goldenComments,
+                                                String cleanedTranscript, Instant deadline, LlmUsage usage) {
+        String prompt = createStagedPrompt(String.join("\n", goldenComments), cleanedTranscript);
+        logger.info("[Extract] LLM prompt constructed. Length: {}", prompt.length());
+        logger.info("[Extract] Golden comments count: {}", goldenComments.size());
+        logger.info("[Extract] Cleaned transcript length: {}", cleanedTranscript != null ? cleanedTranscript.length() : 0);
+        logger.info("[Extract] Prompt preview (first 1000 chars): {}", 
+            prompt.substring(0, Math.min(1000, prompt.length())));
+
+        // JSON mode with a response schema: the answer is deserialized straight into a WorkoutPlan
+        WorkoutPlan plan = null;
+        try {
+            plan = geminiClient.generateStructured(prompt, WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, deadline, usage);
+            logger.info("[Extract] LLM API response received with {} exercises",
+                plan.exercises() != null ? plan.exercises().size() : 0);
+        } catch (GeminiException e) {
+            if (!e.isContentError()) {
+                throw e;
+            }
+            logger.error("[Extract] LLM returned unusable content: {}", e.getMessage());
+        }
+        
+        
+        
+        Map<String, Object> parsedJson = null;
+        try {
+            if (plan == null) {
+                throw new IllegalStateException("LLM response contained no workout");
+            }
+            parsedJson = toWorkoutMap(plan);
+            logger.info("[Extract] Parsed JSON structure: {}", parsedJson.keySet());
+            
+            // Process exercises and add fallback values with transparency flags
+            if (parsedJson.containsKey("exercises")) {
+                java.util.List<Map<String, Object>> exercises = (java.util.List<Map<String, Object>>) parsedJson.get("exercises");
+                logger.info("[Extract] Exercises array size: {}", exercises.size());
+                
+                // Process each exercise to add fallback values and transparency flags
+                for (Map<String, Object> exercise : exercises) {
+                    processExerciseWithFallbacks(exercise);
+                }
+                
+                if (exercises.isEmpty()) {
+                    logger.warn("[Extract] WARNING: Exercises array is empty! Trying second LLM attempt with video metadata.");
+                    
+                    // Second LLM attempt with video metadata
+                    String secondPrompt = createMetadataBasedPrompt(title, uploader);
+                    logger.info("[Extract] Second LLM prompt created. Length: {}", secondPrompt.length());
+                    
+                    // Call LLM again with metadata-based prompt
+                    WorkoutPlan secondPlan = null;
+                    try {
+                        secondPlan = geminiClient.generateStructured(secondPrompt, WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, deadline, usage);
+                        logger.info("[Extract] Second LLM response received");
+                    } catch (GeminiException e) {
+                        if (!e.isContentError()) {
+                            throw e;
+                        }
+                        logger.warn("[Extract] Second LLM returned unusable content: {}", e.getMessage());
+                    }
+                    if (secondPlan != null) {
+                        try {
+                            Map<String, Object> secondParsedJson = toWorkoutMap(secondPlan);
+                            
+                            // Use the second response if it has exercises
+                            if (secondParsedJson.containsKey("exercises")) {
+                                java.util.List<Map<String, Object>> secondExercises = (java.util.List<Map<String, Object>>) secondParsedJson.get("exercises");
+                                if (!secondExercises.isEmpty()) {
+                                    logger.info("[Extract] Second LLM provided {} exercises", secondParsedJson.size());
+                                    parsedJson = secondParsedJson; // Replace with second response
+                                    // Mark as LLM adjusted
+                                    parsedJson.put("llmAdjusted", true);
+                                    parsedJson.put("adjustmentReason", "corrupted_transcript");
+                                    logger.info("[Extract] Marked workout as LLM adjusted");
+                                } else {
+                                    logger.warn("[Extract] Second LLM also returned empty exercises");
+                                    // Initialize parsedJson if it's null
+                                    if (parsedJson == null) {
+                                        parsedJson = new java.util.HashMap<>();
+                                    }
+                                    createFallbackWorkout(parsedJson);
+                                }
+                            } else {
+                                logger.warn("[Extract] Second LLM response missing exercises field");
+                                // Initialize parsedJson if it's null
+                                if (parsedJson == null) {
+                                    parsedJson = new java.util.HashMap<>();
+                                }
+                                createFallbackWorkout(parsedJson);
+                            }
+                        } catch (Exception e) {
+                            logger.error("[Extract] Failed to parse second LLM response: {}", e.getMessage());
+                            // Initialize parsedJson if it's null
+                            if (parsedJson == null) {
+                                parsedJson = new java.util.HashMap<>();
+                            }
+                            createFallbackWorkout(parsedJson);
+                        }
+                    } else {
+                        logger.warn("[Extract] Failed to extract JSON from second LLM response");
+                        // Initialize parsedJson if it's null
+                        if (parsedJson == null) {
+                            parsedJson = new java.util.HashMap<>();
+                        }
+                        createFallbackWorkout(parsedJson);
+                    }
+                } else {
+                    // Stage 2: Send back to LLM to fill missing values with reasonable estimates
+                    logger.info("[Extract] Stage 2: Sending to LLM for missing value estimation");
+                    WorkoutPlan estimatedPlan = estimateMissingValues(plan, prompt, deadline, usage);
+                    if (estimatedPlan != null) {
+                        // Use the estimated plan as our final result
+                        Map<String, Object> estimatedData = toWorkoutMap(estimatedPlan);
+                        parsedJson = estimatedData; // Replace with estimated data
+                        logger.info("[Extract] Stage 2 completed with estimated values");
+                        
+                        // Re-process the estimated JSON to ensure transparency flags are correct
+                        java.util.List<Map<String, Object>> estimatedExercises = (java.util.List<Map<String, Object>>) estimatedData.get("exercises");
+                        for (int i = 0; i < estimatedExercises.size(); i++) {
+                            Map<String, Object> exercise = estimatedExercises.get(i);
+                            // The estimate comes back without flags: carry over the ones set on the extracted values
+                            if (i < exercises.size() && java.util.Objects.equals(exercises.get(i).get("name"), exercise.get("name"))) {
+                                for (String field : java.util.List.of("reps", "sets", "rest")) {
+                                    Object flag = exercises.get(i).get(field + "_transparency");
+                                    if (flag != null) {
+                                        exercise.put(field + "_transparency", flag);
+                                    }
+                                }
+                            }
+                            // Re-apply transparency flags based on whether values were originally null
+                            // We need to check if the value was originally null and is now filled
+                            reapplyTransparencyFlags(exercise);
+                        }
+                        logger.info("[Extract] Re-processed estimated JSON with transparency flags");
+                    } else {
+                        logger.info("[Extract] Stage 2: No changes made by estimation");
+                    }
+                }
+            }
+            
+            if (parsedJson.containsKey("equipment")) {
+                java.util.List<?> equipment = (java.util.List<?>) parsedJson.get("equipment");
+                logger.info("[Extract] Equipment array size: {}", equipment.size());
+            }
+            
+            if (parsedJson.containsKey("targetMuscles")) {
+                java.util.List<?> targetMuscles = (java.util.List<?>) parsedJson.get("targetMuscles");
+                logger.info("[Extract] Target muscles array size: {}", targetMuscles.size());
+            }
+        } catch (Exception e) {
+            logger.error("[Extract] Failed to parse extracted JSON: {}", e.getMessage());
+            // If parsing fails, create a fallback workout
+            parsedJson = new java.util.HashMap<>();
+            createFallbackWorkout(parsedJson);
+        }
+        return parsedJson;
+    }
+
+    /**
+     * Mutable map view of a plan for the transparency-flag passes. Missing exercises become an empty
+     * list so they take the metadata-based retry path.
+     */
+    private Map<String, Object> toWorkoutMap(WorkoutPlan plan) {
+        Map<String, Object> workout = objectMapper.convertValue(plan, new com.fasterxml.jackson.core.type.TypeReference<java.util.LinkedHashMap<String, Object>>() {});
+        if (workout.get("exercises") == null) {
+            workout.put("exercises", new java.util.ArrayList<>());
+        }
+        return workout;
+    }
+
+    private void processExerciseWithFallbacks(Map<String, Object> exercise) {
+        if (exercise == null) return;
+
+        java.util.function.Predicate<Object> isNullValue = (value) -> {
+            if (value == null) return true;
+            String strValue = value.toString().trim();
+            return strValue.isEmpty() || "null".equalsIgnoreCase(strValue) || "undefined".equalsIgnoreCase(strValue);
+        };
+
+        // Fallback for reps
+        if (isNullValue.test(exercise.get("reps"))) {
+            exercise.put("reps", null); // Mark as missing with transparency
+            exercise.put("reps_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': reps marked as missing", exercise.get("name"));
+        } else {
+            exercise.put("reps_transparency", "present");
+            logger.info("[Extract] Exercise '{}': reps found in video", exercise.get("name"));
+        }
+
+        // Fallback for sets
+        if (isNullValue.test(exercise.get("sets"))) {
+            exercise.put("sets", null); // Mark as missing with transparency
+            exercise.put("sets_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': sets marked as missing", exercise.get("name"));
+        } else {
+            exercise.put("sets_transparency", "present");
+            logger.info("[Extract] Exercise '{}': sets found in video", exercise.get("name"));
+        }
+
+        // Fallback for rest
+        if (isNullValue.test(exercise.get("rest"))) {
+            exercise.put("rest", null); // Mark as missing with transparency
+            exercise.put("rest_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': rest marked as missing", exercise.get("name"));
+        } else {
+            exercise.put("rest_transparency", "present");
+            logger.info("[Extract] Exercise '{}': rest found in video", exercise.get("name"));
+        }
+    }
+
+    /**
+     * Asks Gemini to estimate missing reps/sets/rest. Returns the estimated plan, or null when nothing
+     * is missing or the estimate could not be obtained.
+     */
+    private WorkoutPlan estimateMissingValues(WorkoutPlan plan, String originalPrompt, Instant deadline, LlmUsage usage) {
+        try {
+            java.util.List<Exercise> exercises = plan.exercises();
+            if (exercises == null || exercises.isEmpty()) {
+                return null;
+            }
+            String currentJson = objectMapper.writeValueAsString(plan);
+
+            // Build a list of exercises with missing values
+            java.util.List<String> missingExercises = new java.util.ArrayList<>();
+            for (int i = 0; i < exercises.size(); i++) {
+                Exercise exercise = exercises.get(i);
+                java.util.List<String> missing = new java.util.ArrayList<>();
+                
+                // Check for missing values using the same logic as processExerciseWithFallbacks
+                java.util.function.Predicate<Object> isNullValue = (value) -> {
+                    if (value == null) return true;
+                    String strValue = value.toString().trim();
+                    return strValue.isEmpty() || "null".equalsIgnoreCase(strValue) || "undefined".equalsIgnoreCase(strValue);
+                };
+                
+                Object repsValue = exercise.reps();
+                Object setsValue = exercise.sets();
+                Object restValue = exercise.rest();
+                
+                logger.info("[Extract] Exercise '{}': reps={}, sets={}, rest={}", 
+                    exercise.name(), repsValue, setsValue, restValue);
+                
+                if (isNullValue.test(repsValue)) missing.add("reps");
+                if (isNullValue.test(setsValue)) missing.add("sets");
+                if (isNullValue.test(restValue)) missing.add("rest");
+                
+                if (!missing.isEmpty()) {
+                    String exerciseName = exercise.name();
+                    missingExercises.add(String.format("Exercise %d (%s): missing %s", 
+                        i + 1, exerciseName, String.join(", ", missing)));
+                    logger.info("[Extract] Found missing values for exercise '{}': {}", exerciseName, missing);
+                }
+            }
+
+            if (missingExercises.isEmpty()) {
+                logger.info("[Extract] No missing values to estimate");
+                return null;
+            }
+
+            // Create the estimation prompt
+            StringBuilder estimationPrompt = new StringBuilder();
+            estimationPrompt.append("You are a fitness expert. I have extracted workout data from a video, but some values are missing. ")
+                .append("Please provide reasonable estimates for the missing values based on your knowledge of fitness and exercise science.\n\n")
+                .append("**Instructions:**\n")
+                .append("1. Only fill in the missing values (reps, sets, rest) that are currently 'null'\n")
+                .append("2. Use your knowledge of exercise science to provide realistic estimates\n")
+                .append("3. For reps: Use realistic ranges like '8-12', '10-15', or 'till failure' for high-intensity exercises\n")
+                .append("4. For sets: Use realistic ranges like '3-4', '4-5', or '3' for most exercises\n")
+                .append("5. For rest: Use realistic times like '60s', '90s', '2-3 min' based on exercise intensity\n")
+                .append("6. Consider the exercise type, difficulty, and typical workout patterns\n")
+                .append("7. Keep the transparency flags as 'missing' to indicate these are estimates\n")
+                .append("8. Return ONLY the JSON object with the estimated values filled in\n\n")
+                .append("**Missing values to estimate:**\n")
+                .append(String.join("\n", missingExercises)).append("\n\n")
+                .append("**Current workout data:**\n")
+                .append(currentJson);
+
+            logger.info("[Extract] Estimation prompt length: {}", estimationPrompt.length());
+
+            // Call LLM for estimation
+            WorkoutPlan estimated = geminiClient.generateStructured(estimationPrompt.toString(), WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, deadline, usage);
+            logger.info("[Extract] Successfully received estimated workout");
+            return estimated;
+
+        } catch (Exception e) {
+            logger.error("[Extract] Error in estimateMissingValues: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void reapplyTransparencyFlags(Map<String, Object> exercise) {
+        if (exercise == null) return;
+
+        java.util.function.Predicate<Object> isNullValue = (value) -> {
+            if (value == null) return true;
+            String strValue = value.toString().trim();
+            return strValue.isEmpty() || "null".equalsIgnoreCase(strValue) || "undefined".equalsIgnoreCase(strValue);
+        };
+
+        // For estimated values, we need to determine which values were originally null
+        // and are now filled in by the LLM. These should be marked as "missing"
+        
+        // Check if reps was originally null but now has a value
+        if (!isNullValue.test(exercise.get("reps")) && !exercise.containsKey("reps_transparency")) {
+            // Reps has a value but no transparency flag - this means it was estimated
+            exercise.put("reps_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': reps was estimated, setting transparency to 'missing'", exercise.get("name"));
+        } else if (!isNullValue.test(exercise.get("reps")) && exercise.containsKey("reps_transparency")) {
+            // Reps has a value and already has a transparency flag - keep it
+            logger.info("[Extract] Exercise '{}': reps transparency preserved as '{}'", exercise.get("name"), exercise.get("reps_transparency"));
+        }
+
+        // Check if sets was originally null but now has a value
+        if (!isNullValue.test(exercise.get("sets")) && !exercise.containsKey("sets_transparency")) {
+            // Sets has a value but no transparency flag - this means it was estimated
+            exercise.put("sets_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': sets was estimated, setting transparency to 'missing'", exercise.get("name"));
+        } else if (!isNullValue.test(exercise.get("sets")) && exercise.containsKey("sets_transparency")) {
+            // Sets has a value and already has a transparency flag - keep it
+            logger.info("[Extract] Exercise '{}': sets transparency preserved as '{}'", exercise.get("name"), exercise.get("sets_transparency"));
+        }
+
+        // Check if rest was originally null but now has a value
+        if (!isNullValue.test(exercise.get("rest")) && !exercise.containsKey("rest_transparency")) {
+            // Rest has a value but no transparency flag - this means it was estimated
+            exercise.put("rest_transparency", "missing");
+            logger.info("[Extract] Exercise '{}': rest was estimated, setting transparency to 'missing'", exercise.get("name"));
+        } else if (!isNullValue.test(exercise.get("rest")) && exercise.containsKey("rest_transparency")) {
+            // Rest has a value and already has a transparency flag - keep it
+            logger.info("[Extract] Exercise '{}': rest transparency preserved as '{}'", exercise.get("name"), exercise.get("rest_transparency"));
+        }
+
+        // If any value is still null, mark it as missing
+        if (isNullValue.test(exercise.get("reps"))) {
+            exercise.put("reps_transparency", "missing");
+        }
+        if (isNullValue.test(exercise.get("sets"))) {
+            exercise.put("sets_transparency", "missing");
+        }
+        if (isNullValue.test(exercise.get("rest"))) {
+            exercise.put("rest_transparency", "missing");
+        }
+    }
+
+    private String createStagedPrompt(String goldenCommentsText, String cleanedTranscript) {
+        StringBuilder promptBuilder = new StringBuilder();
+        promptBuilder.append("You are an expert fitness data extractor. Your task is to analyze the provided video transcript and user comments to create a complete, structured workout plan in JSON format.\n\n")
+            .append("**Instructions:**\n")
+            .append("1.  **Prioritize User Comments:** The user comments are highly likely to contain the precise sets and reps. Use them as the primary source for the 'exercises' array.\n")
+            .append("2.  **Use Transcript for Context:** Use the video transcript to fill in missing details, such as exercise names, detailed notes, workout type, and target muscles.\n")
+            .append("3.  **Handle Missing Data:** If a specific value for 'reps', 'sets', or 'rest' cannot be found in any source, the value in the JSON MUST be `null`. Do not guess or make up values.\n")
+            .append("4.  **Be Conservative:** Only include exercises where you can confidently identify the exercise name. If you're unsure about an exercise, omit it.\n")
+            .append("5.  **Output ONLY the JSON object.** Do not include any other text or explanations.\n\n")
+            .append("**JSON Schema to follow:**\n")
+            .append("{\n")
+            .append("  \"equipment\": [\"List of strings\"],\n")
+            .append("  \"exercises\": [\n")
+            .append("    {\n")
+            .append("      \"name\": \"String\",\n")
+            .append("      \"reps\": \"String or null\",\n")
+            .append("      \"rest\": \"String or null\",\n")
+            .append("      \"sets\": \"String or null\",\n")
+            .append("      \"emoji\": \"String (a single relevant emoji)\",\n")
+            .append("      \"notes\": \"String (detailed notes on form and execution)\",\n")
+            .append("      \"difficulty\": \"String (Easy, Medium, or Hard)\"\n")
+            .append("    }\n")
+            .append("  ],\n")
+            .append("  \"workoutType\": \"String\",\n")
+            .append("  \"targetMuscles\": [\"List of strings\"]\n")
+            .append("}\n\n")
+            .append("---\n")
+            .append("**DATA STARTS HERE**\n\n")
+            .append("**[User Comments - High Priority for Sets/Reps]:**\n")
+            .append(goldenCommentsText).append("\n\n")
+            .append("**[Video Transcript - For Context and Notes]:**\n")
+            .append(cleanedTranscript);
+        return promptBuilder.toString();
+    }
+
+    private String createMetadataBasedPrompt(String title, String uploader) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("You are an expert fitness data extractor. The video transcript was corrupted, so I need you to create a workout based on the video metadata.\n\n")
+            .append("**Video Information:**\n")
+            .append("Title: ").append(title).append("\n")
+            .append("Creator: ").append(uploader).append("\n\n")
+            .append("**CRITICAL INSTRUCTION - PAY ATTENTION TO THE TITLE:**\n")
+            .append("1. The video title is the PRIMARY source of information about what exercises to include\n")
+            .append("2. If the title mentions a specific number (like '25 BEST DUMBBELL EXERCISES'), you MUST create EXACTLY that many exercises\n")
+            .append("3. If the title says '25 BEST DUMBBELL EXERCISES', create exactly 25 different dumbbell exercises\n")
+            .append("4. Each exercise should be unique and target different muscle groups\n")
+            .append("5. Use common workout patterns and exercise science knowledge\n")
+            .append("6. Provide reasonable estimates for sets, reps, and rest periods\n")
+            .append("7. Output ONLY the JSON object\n\n")
+            .append("**JSON Schema:**\n")
+            .append("{\n")
+            .append("  \"equipment\": [\"List of equipment needed\"],\n")
+            .append("  \"exercises\": [\n")
+            .append("    {\n")
+            .append("      \"name\": \"Exercise name\",\n")
+            .append("      \"reps\": \"String (e.g., '8-12', '10-15')\",\n")
+            .append("      \"rest\": \"String (e.g., '60s', '90s')\",\n")
+            .append("      \"sets\": \"String (e.g., '3', '4')\",\n")
+            .append("      \"emoji\": \"String (relevant emoji)\",\n")
+            .append("      \"notes\": \"String (form tips and notes)\",\n")
+            .append("      \"difficulty\": \"String (Easy, Medium, or Hard)\"\n")
+            .append("    }\n")
+            .append("  ],\n")
+            .append("  \"workoutType\": \"String (e.g., 'Push Day', 'Pull Day', 'Full Body')\",\n")
+            .append("  \"targetMuscles\": [\"List of target muscles\"]\n")
+            .append("}\n\n")
+            .append("**TITLE ANALYSIS:**\n");
+        
+        // Add specific analysis based on the title
+        if (title.toUpperCase().contains("25") && title.toUpperCase().contains("DUMBBELL")) {
+            prompt.append("The title mentions '25 BEST DUMBBELL EXERCISES' - you MUST create EXACTLY 25 different dumbbell exercises.\n")
+                  .append("Include a variety of exercises targeting: chest, back, shoulders, biceps, triceps, legs, core\n")
+                  .append("Examples: Dumbbell Bench Press, Dumbbell Rows, Dumbbell Shoulder Press, Dumbbell Curls, Dumbbell Tricep Extensions, Dumbbell Squats, Dumbbell Lunges, etc.\n\n");
+        } else if (title.toUpperCase().contains("BEST") && title.toUpperCase().contains("EXERCISES")) {
+            prompt.append("The title mentions 'BEST EXERCISES' - create a comprehensive list of exercises based on the title.\n\n");
+        }
+        
+        prompt.append("Create a realistic workout based on the video title: ").append(title);
+        
+        return prompt.toString();
+    }
+
+    private void createFallbackWorkout(Map<String, Object> parsedJson) {
+        logger.warn("[Extract] Creating fallback workout");
+        
+        // Ensure parsedJson is not null
+        if (parsedJson == null) {
+            parsedJson = new java.util.HashMap<>();
+        }
+        
+        // Create a more comprehensive fallback workout
+        java.util.List<Map<String, Object>> exercises = new java.util.ArrayList<>();
+        
+        // Add some basic dumbbell exercises
+        exercises.add(Map.of(
+            "name", "Dumbbell Bench Press",
+            "reps", "8-12",
+            "rest", "60s",
+            "sets", "3",
+            "emoji", "💪",
+            "notes", "Lie on bench, lower dumbbells to chest, press up",
+            "difficulty", "Hard"
+        ));
+        
+        exercises.add(Map.of(
+            "name", "Dumbbell Rows",
+            "reps", "10-12",
+            "rest", "60s",
+            "sets", "3",
+            "emoji", "🏋️",
+            "notes", "Bend at waist, pull dumbbells to hips",
+            "difficulty", "Medium"
+        ));
+        
+        exercises.add(Map.of(
+            "name", "Dumbbell Shoulder Press",
+            "reps", "8-10",
+            "rest", "60s",
+            "sets", "3",
+            "emoji", "💪",
+            "notes", "Press dumbbells overhead, control movement",
+            "difficulty", "Hard"
+        ));
+        
+        exercises.add(Map.of(
+            "name", "Dumbbell Squats",
+            "reps", "12-15",
+            "rest", "90s",
+            "sets", "3",
+            "emoji", "🦵",
+            "notes", "Hold dumbbells at sides, squat down",
+            "difficulty", "Medium"
+        ));
+        
+        exercises.add(Map.of(
+            "name", "Dumbbell Lunges",
+            "reps", "10 each leg",
+            "rest", "60s",
+            "sets", "3",
+            "emoji", "🦵",
+            "notes", "Step forward, lower back knee",
+            "difficulty", "Medium"
+        ));
+        
+        parsedJson.put("exercises", exercises);
+        parsedJson.put("workoutType", "Full Body");
+        parsedJson.put("targetMuscles", java.util.List.of("Chest", "Back", "Shoulders", "Legs"));
+        parsedJson.put("equipment", java.util.List.of("Dumbbells"));
+        parsedJson.put("llmAdjusted", true);
+        parsedJson.put("adjustmentReason", "corrupted_transcript");
+        logger.info("[Extract] Created failure indicator workout with llmAdjusted=true");
+    }
+}
@@ -0,0 +1,57 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Answer of the single-call extraction: the workout with observed and estimated values side by
+ * side, so one Gemini call covers extraction, estimation of missing values and the metadata
+ * fallback. basedOnMetadata is set when the transcript and comments held no usable exercises and
+ * the workout was built from the video title instead.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WorkoutExtraction(
+        List<String> equipment,
+        List<ExtractedExercise> exercises,
+        String workoutType,
+        List<String> targetMuscles,
+        boolean basedOnMetadata) {
+
+    private static final Map<String, Object> NULLABLE_STRING = Map.of("type", "STRING", "nullable", true);
+
+    /**
+     * Gemini responseSchema (OpenAPI subset) matching this record.
+     */
+    public static final Map<String, Object> RESPONSE_SCHEMA = Map.of(
+        "type", "OBJECT",
+        "properties", Map.of(
+            "equipment", Map.of("type", "ARRAY", "items", Map.of("type", "STRING")),
+            "exercises", Map.of("type", "ARRAY", "items", Map.of(
+                "type", "OBJECT",
+                "properties", Map.ofEntries(
+                    Map.entry("name", Map.of("type", "STRING")),
+                    Map.entry("repsObserved", NULLABLE_STRING),
+                    Map.entry("repsEstimated", Map.of("type", "STRING")),
+                    Map.entry("restObserved", NULLABLE_STRING),
+                    Map.entry("restEstimated", Map.of("type", "STRING")),
+                    Map.entry("setsObserved", NULLABLE_STRING),
+                    Map.entry("setsEstimated", Map.of("type", "STRING")),
+                    Map.entry("emoji", Map.of("type", "STRING")),
+                    Map.entry("notes", Map.of("type", "STRING")),
+                    Map.entry("difficulty", Map.of("type", "STRING", "enum", List.of("Easy", "Medium", "Hard")))
+                ),
+                "required", List.of("name", "repsObserved", "repsEstimated", "restObserved", "restEstimated",
+                    "setsObserved", "setsEstimated", "emoji", "notes", "difficulty"),
+                "propertyOrdering", List.of("name", "repsObserved", "repsEstimated", "restObserved", "restEstimated",
+                    "setsObserved", "setsEstimated", "emoji", "notes", "difficulty")
+            )),
+            "workoutType", Map.of("type", "STRING"),
+            "targetMuscles", Map.of("type", "ARRAY", "items", Map.of("type", "STRING")),
+            "basedOnMetadata", Map.of("type", "BOOLEAN")
+        ),
+        "required", List.of("equipment", "exercises", "workoutType", "targetMuscles", "basedOnMetadata"),
+        "propertyOrdering", List.of("equipment", "exercises", "workoutType", "targetMuscles", "basedOnMetadata")
+    );
+}
@@ -8,6 +8,13 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -21,14 +28,34 @@ public class WorkoutExtractionController {
     private final VideoExtractionService videoExtractionService;
     private final VideoRepository videoRepository;
     private final ExtractionJobRepository extractionJobRepository;
+    private final InFlightJobRegistry inFlightJobRegistry;
+    private final ExtractionLoadMonitor extractionLoadMonitor;
+    private final JobProgressStore jobProgressStore;
+    private final JobProgressBroadcaster jobProgressBroadcaster;
+
+    // Active jobs not updated within this window are treated as orphaned and not coalesced onto
+    @Value("${extraction.inflight.stale-after:PT10M}")
+    private Duration inFlightStaleAfter = Duration.ofMinutes(10);
+
+    // Leave new jobs in extraction_jobs for ExtractionJobQueue workers on any node instead of running them here
+    @Value("${extraction.queue.durable:false}")
+    private boolean durableQueue = false;
 
     public WorkoutExtractionController(
             VideoExtractionService videoExtractionService,
             VideoRepository videoRepository,
-            ExtractionJobRepository extractionJobRepository) {
+            ExtractionJobRepository extractionJobRepository,
+            InFlightJobRegistry inFlightJobRegistry,
+            ExtractionLoadMonitor extractionLoadMonitor,
+            JobProgressStore jobProgressStore,
+            JobProgressBroadcaster jobProgressBroadcaster) {
         this.videoExtractionService = videoExtractionService;
         this.videoRepository = videoRepository;
         this.extractionJobRepository = extractionJobRepository;
+        this.inFlightJobRegistry = inFlightJobRegistry;
+        this.extractionLoadMonitor = extractionLoadMonitor;
+        this.jobProgressStore = jobProgressStore;
+        this.jobProgressBroadcaster = jobProgressBroadcaster;
     }
 
     // Controller methods to be implemented
@@ -45,26 +72,129 @@ public class WorkoutExtractionController {
         if (videoId == null) {
             return ResponseEntity.badRequest().body(Map.of("error", "Invalid YouTube URL"));
         }
+        // Bulk callers (ingestion scripts, backfills) pass "priority": "bulk" to stay out of users' way
+        JobPriority priority;
+        try {
+            priority = JobPriority.parse(request.get("priority"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Invalid priority, expected interactive or bulk"));
+        }
         // 2. Check if a video with this ID already exists
         Optional<Video> existing = videoRepository.findByYoutubeVideoId(videoId);
         if (existing.isPresent()) {
             return ResponseEntity.ok(existing.get());
         }
-        // 3. Create and save a new ExtractionJob with 'PENDING' status
-        ExtractionJob job = new ExtractionJob();
-        job.setYoutubeVideoId(videoId);
-        job.setStatus("PENDING");
-        job.setProgress(0);
-        job = extractionJobRepository.save(job);
-        logger.info("[Extract] Extraction job created with ID: {}", job.getId());
-        // 4. Call the asynchronous processWorkoutExtraction(jobId)
-        videoExtractionService.processWorkoutExtraction(job.getId());
-        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", job.getId()));
+        // 3. Coalesce onto an extraction that is already running for this video, here or on another node
+        Optional<UUID> running = inFlightJobRegistry.find(videoId)
+                .or(() -> findActiveJobId(videoId));
+        if (running.isPresent()) {
+            logger.info("[Extract] Reusing in-flight job {} for video {}", running.get(), videoId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", running.get()));
+        }
+        // 4. Create and save a new ExtractionJob with 'PENDING' status, unless a concurrent request beat us to it
+        InFlightJobRegistry.Claim claim = inFlightJobRegistry.claim(videoId, () -> {
+            ExtractionJob job = new ExtractionJob();
+            job.setYoutubeVideoId(videoId);
+            job.setStatus("PENDING");
+            job.setProgress(0);
+            job.setPriority(priority);
+            job = extractionJobRepository.save(job);
+            logger.info("[Extract] Extraction job created with ID: {}", job.getId());
+            return job.getId();
+        });
+        if (!claim.created()) {
+            logger.info("[Extract] Coalesced request onto job {} for video {}", claim.jobId(), videoId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", claim.jobId()));
+        }
+        // 5. Start it
+        return dispatch(claim.jobId(), priority);
+    }
+
+    /**
+     * Runs a FAILED job again. The pipeline resumes after the last stage checkpointed by the failed
+     * run, so a job that failed in the LLM stage does not fetch from YouTube again.
+     */
+    @PostMapping("/extract/{jobId}/retry")
+    public ResponseEntity<?> retryExtraction(@PathVariable UUID jobId) {
+        logger.info("[Extract] Retry requested for job ID: {}", jobId);
+        Optional<ExtractionJob> found = extractionJobRepository.findById(jobId);
+        if (found.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Job not found"));
+        }
+        ExtractionJob job = found.get();
+        if (!"FAILED".equals(job.getStatus())) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Only failed jobs can be retried", "status", job.getStatus()));
+        }
+        String videoId = job.getYoutubeVideoId();
+        // Another request may have started a fresh job for the same video since this one failed
+        Optional<UUID> running = inFlightJobRegistry.find(videoId).or(() -> findActiveJobId(videoId));
+        if (running.isPresent()) {
+            logger.info("[Extract] Retry of job {} coalesced onto in-flight job {}", jobId, running.get());
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", running.get()));
+        }
+        InFlightJobRegistry.Claim claim = inFlightJobRegistry.claim(videoId, () -> {
+            job.setStatus("PENDING");
+            job.setProgress(0);
+            job.setErrorMessage(null);
+            extractionJobRepository.save(job);
+            extractionJobRepository.resetLease(job.getId());
+            return job.getId();
+        });
+        if (!claim.created()) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", claim.jobId()));
+        }
+        return dispatch(claim.jobId(), job.getPriority());
+    }
+
+    private ResponseEntity<?> dispatch(UUID jobId, JobPriority priority) {
+        // With the durable queue, the PENDING row is the dispatch; coalescing continues through findActiveJobId
+        if (durableQueue) {
+            inFlightJobRegistry.release(jobId);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", jobId));
+        }
+        // Otherwise queue processWorkoutExtraction(jobId) by priority, shedding load if the executor is saturated
+        try {
+            videoExtractionService.processWorkoutExtraction(jobId, priority);
+        } catch (TaskRejectedException e) {
+            return rejectJob(jobId);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("jobId", jobId));
+    }
+
+    private ResponseEntity<?> rejectJob(UUID jobId) {
+        long retryAfterSeconds = extractionLoadMonitor.retryAfterSeconds();
+        logger.warn("[Extract] Extraction queue is full, rejecting job {} (retry after {}s)", jobId, retryAfterSeconds);
+        extractionLoadMonitor.recordRejection();
+        extractionJobRepository.findById(jobId).ifPresent(job -> {
+            job.setStatus("FAILED");
+            job.setErrorMessage("Server is busy, please retry later");
+            extractionJobRepository.save(job);
+        });
+        inFlightJobRegistry.release(jobId);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(Map.of(
+                    "error", "Too many extractions in progress",
+                    "retryAfterSeconds", retryAfterSeconds
+                ));
+    }
+
+    private Optional<UUID> findActiveJobId(String videoId) {
+        Instant updatedSince = Instant.now().minus(inFlightStaleAfter);
+        return extractionJobRepository.findActiveByYoutubeVideoId(videoId, updatedSince).stream()
+                .findFirst()
+                .map(ExtractionJob::getId);
     }
 
     @GetMapping("/extract/status/{jobId}")
     public ResponseEntity<?> getExtractionStatus(@PathVariable UUID jobId) {
         logger.info("[Extract] Checking status for job ID: {}", jobId);
+        // Running jobs are served from memory; only finished or remote jobs need a database read
+        Optional<ExtractionJob> live = jobProgressStore.find(jobId);
+        if (live.isPresent()) {
+            return ResponseEntity.ok(live.get());
+        }
         return extractionJobRepository.findById(jobId)
                 .<ResponseEntity<?>>map(job -> {
                     logger.info("[Extract] Job status: {}", job.getStatus());
@@ -98,6 +228,15 @@ public class WorkoutExtractionController {
     }
 
 
+    @GetMapping(path = "/extract/status/{jobId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExtractionStatus(@PathVariable UUID jobId) {
+        logger.info("[Extract] Opening progress stream for job ID: {}", jobId);
+        return jobProgressStore.find(jobId)
+                .or(() -> extractionJobRepository.findById(jobId))
+                .map(job -> ResponseEntity.ok(jobProgressBroadcaster.subscribe(job, () -> jobProgressStore.find(jobId)
+                        .or(() -> extractionJobRepository.findById(jobId)))))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+    }
 
     @GetMapping("/{youtubeVideoId}")
     public ResponseEntity<?> getWorkoutByYoutubeVideoId(@PathVariable String youtubeVideoId) {
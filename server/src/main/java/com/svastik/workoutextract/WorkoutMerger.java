@@ -0,0 +1,123 @@
+package com.svastik.workoutextract;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the extractions of overlapping transcript chunks into one workout. The result depends only
+ * on the chunks and their order:
+ * <ul>
+ *   <li>exercises are de-duplicated by name (case, punctuation and a plural "s" ignored) and kept
+ *   in order of first appearance; a duplicate fills in values the earlier one lacked, and the
+ *   longer note wins;</li>
+ *   <li>equipment and target muscles are unioned in order of first appearance;</li>
+ *   <li>the workout type is the one most chunks report, the earliest on a tie.</li>
+ * </ul>
+ * Chunks that fell back to the video metadata are only used when no chunk found exercises in the
+ * transcript.
+ */
+final class WorkoutMerger {
+
+    private WorkoutMerger() {
+    }
+
+    static WorkoutExtraction merge(List<WorkoutExtraction> chunks) {
+        List<WorkoutExtraction> usable = chunks.stream()
+            .filter(chunk -> chunk != null && chunk.exercises() != null && !chunk.exercises().isEmpty())
+            .toList();
+        List<WorkoutExtraction> fromTranscript = usable.stream().filter(chunk -> !chunk.basedOnMetadata()).toList();
+        boolean basedOnMetadata = fromTranscript.isEmpty() && !usable.isEmpty();
+        List<WorkoutExtraction> sources = basedOnMetadata ? usable.subList(0, 1) : fromTranscript;
+
+        Map<String, ExtractedExercise> exercises = new LinkedHashMap<>();
+        Set<String> equipment = new LinkedHashSet<>();
+        Set<String> equipmentKeys = new LinkedHashSet<>();
+        Set<String> muscles = new LinkedHashSet<>();
+        Set<String> muscleKeys = new LinkedHashSet<>();
+        Map<String, Integer> typeVotes = new LinkedHashMap<>();
+        for (WorkoutExtraction chunk : sources) {
+            for (ExtractedExercise exercise : chunk.exercises()) {
+                if (exercise == null || exercise.name() == null || exercise.name().isBlank()) continue;
+                exercises.merge(exerciseKey(exercise.name()), exercise, WorkoutMerger::combine);
+            }
+            addAll(equipment, equipmentKeys, chunk.equipment());
+            addAll(muscles, muscleKeys, chunk.targetMuscles());
+            if (chunk.workoutType() != null && !chunk.workoutType().isBlank()) {
+                typeVotes.merge(chunk.workoutType().trim(), 1, Integer::sum);
+            }
+        }
+
+        String workoutType = null;
+        int bestVotes = 0;
+        for (Map.Entry<String, Integer> vote : typeVotes.entrySet()) {
+            if (vote.getValue() > bestVotes) {
+                workoutType = vote.getKey();
+                bestVotes = vote.getValue();
+            }
+        }
+        return new WorkoutExtraction(new ArrayList<>(equipment), new ArrayList<>(exercises.values()), workoutType,
+            new ArrayList<>(muscles), basedOnMetadata);
+    }
+
+    // The earlier sighting keeps its name and position; gaps are filled from the later one
+    private static ExtractedExercise combine(ExtractedExercise first, ExtractedExercise later) {
+        return new ExtractedExercise(
+            first.name(),
+            firstPresent(first.repsObserved(), later.repsObserved()),
+            firstPresent(first.repsEstimated(), later.repsEstimated()),
+            firstPresent(first.restObserved(), later.restObserved()),
+            firstPresent(first.restEstimated(), later.restEstimated()),
+            firstPresent(first.setsObserved(), later.setsObserved()),
+            firstPresent(first.setsEstimated(), later.setsEstimated()),
+            firstPresent(first.emoji(), later.emoji()),
+            longer(first.notes(), later.notes()),
+            firstPresent(first.difficulty(), later.difficulty()));
+    }
+
+    private static String firstPresent(String first, String later) {
+        return isBlank(first) ? later : first;
+    }
+
+    private static String longer(String first, String later) {
+        if (isBlank(first)) return later;
+        if (isBlank(later)) return first;
+        return later.length() > first.length() ? later : first;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank() || "null".equalsIgnoreCase(value.trim());
+    }
+
+    private static void addAll(Set<String> values, Set<String> keys, List<String> additions) {
+        if (additions == null) return;
+        for (String value : additions) {
+            if (value == null || value.isBlank()) continue;
+            if (keys.add(value.trim().toLowerCase(Locale.ROOT))) {
+                values.add(value.trim());
+            }
+        }
+    }
+
+    /**
+     * "Push-Ups", "push ups" and "Pushup" share the key "pushup".
+     */
+    static String exerciseKey(String name) {
+        StringBuilder key = new StringBuilder(name.length());
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                key.append(Character.toLowerCase(c));
+            }
+        }
+        int length = key.length();
+        if (length > 3 && key.charAt(length - 1) == 's' && key.charAt(length - 2) != 's') {
+            key.setLength(length - 1);
+        }
+        return key.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The workout Gemini extracts from a video. Serialized as-is into videos.workout_data, after
+ * transparency flags are added to each exercise.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record WorkoutPlan(
+        List<String> equipment,
+        List<Exercise> exercises,
+        String workoutType,
+        List<String> targetMuscles) {
+
+    private static final Map<String, Object> NULLABLE_STRING = Map.of("type", "STRING", "nullable", true);
+
+    /**
+     * Gemini responseSchema (OpenAPI subset) matching this record, so JSON mode returns exactly
+     * these fields.
+     */
+    public static final Map<String, Object> RESPONSE_SCHEMA = Map.of(
+        "type", "OBJECT",
+        "properties", Map.of(
+            "equipment", Map.of("type", "ARRAY", "items", Map.of("type", "STRING")),
+            "exercises", Map.of("type", "ARRAY", "items", Map.of(
+                "type", "OBJECT",
+                "properties", Map.of(
+                    "name", Map.of("type", "STRING"),
+                    "reps", NULLABLE_STRING,
+                    "rest", NULLABLE_STRING,
+                    "sets", NULLABLE_STRING,
+                    "emoji", Map.of("type", "STRING"),
+                    "notes", Map.of("type", "STRING"),
+                    "difficulty", Map.of("type", "STRING", "enum", List.of("Easy", "Medium", "Hard"))
+                ),
+                "required", List.of("name", "reps", "rest", "sets", "emoji", "notes", "difficulty"),
+                "propertyOrdering", List.of("name", "reps", "rest", "sets", "emoji", "notes", "difficulty")
+            )),
+            "workoutType", Map.of("type", "STRING"),
+            "targetMuscles", Map.of("type", "ARRAY", "items", Map.of("type", "STRING"))
+        ),
+        "required", List.of("equipment", "exercises", "workoutType", "targetMuscles"),
+        "propertyOrdering", List.of("equipment", "exercises", "workoutType", "targetMuscles")
+    );
+}
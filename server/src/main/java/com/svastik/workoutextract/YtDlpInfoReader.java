@@ -0,0 +1,112 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Reads the parts of a yt-dlp info JSON the pipeline needs in a single streaming pass. Comments are
+ * handed to a GoldenCommentCollector as they are parsed, and everything else (formats, thumbnails,
+ * automatic captions...) is skipped, so memory per job is independent of the comment count.
+ */
+@Component
+public class YtDlpInfoReader {
+    private static final int GOLDEN_COMMENT_LIMIT = 3;
+
+    private final JsonFactory jsonFactory;
+
+    public YtDlpInfoReader(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    /**
+     * Parses the info JSON. If it carries no comments, the separate comments file written by older
+     * yt-dlp versions is read instead when present.
+     */
+    public VideoInfo read(Path infoJson, Path legacyCommentsFile) throws IOException {
+        String title = null, channelId = null, uploader = null, thumbnail = null;
+        boolean hasComments = false;
+        GoldenCommentCollector collector = new GoldenCommentCollector(GOLDEN_COMMENT_LIMIT);
+
+        try (JsonParser parser = jsonFactory.createParser(infoJson.toFile())) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON object in " + infoJson.getFileName());
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "title" -> title = textOrNull(parser, value);
+                    case "channel_id" -> channelId = textOrNull(parser, value);
+                    case "uploader" -> uploader = textOrNull(parser, value);
+                    case "thumbnail" -> thumbnail = textOrNull(parser, value);
+                    case "comments" -> {
+                        if (value == JsonToken.START_ARRAY) {
+                            hasComments = true;
+                            readComments(parser, collector);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+
+        if (!hasComments && legacyCommentsFile != null && Files.exists(legacyCommentsFile)) {
+            try (JsonParser parser = jsonFactory.createParser(legacyCommentsFile.toFile())) {
+                if (parser.nextToken() == JsonToken.START_ARRAY) {
+                    hasComments = true;
+                    readComments(parser, collector);
+                }
+            }
+        }
+
+        return new VideoInfo(title, channelId, uploader, thumbnail, hasComments, collector.seen(), collector.result());
+    }
+
+    private void readComments(JsonParser parser, GoldenCommentCollector collector) throws IOException {
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String text = null;
+            long likes = 0;
+            boolean pinned = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                switch (field) {
+                    case "text" -> text = textOrNull(parser, value);
+                    case "like_count" -> likes = value.isNumeric() ? parser.getLongValue() : 0;
+                    // yt-dlp writes is_pinned; older comment dumps used pinned
+                    case "is_pinned", "pinned" -> pinned = pinned || value == JsonToken.VALUE_TRUE;
+                    default -> parser.skipChildren();
+                }
+            }
+            collector.offer(text, likes, pinned);
+        }
+    }
+
+    private static String textOrNull(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_STRING) {
+            return parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    public record VideoInfo(
+            String title,
+            String channelId,
+            String uploader,
+            String thumbnail,
+            boolean hasComments,
+            int commentCount,
+            List<String> goldenComments) {
+    }
+}
@@ -0,0 +1,70 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void testWaitsForSlotAndTimesOut() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.5, Duration.ofSeconds(10));
+
+        assertTrue(limiter.acquire(Duration.ZERO));
+        assertTrue(limiter.acquire(Duration.ZERO));
+        assertFalse(limiter.acquire(Duration.ofMillis(50)));
+        assertEquals(2, limiter.inFlight());
+
+        limiter.onIgnore();
+        assertTrue(limiter.acquire(Duration.ZERO));
+    }
+
+    @Test
+    void testGrowsAdditivelyWhileSaturatedAndHealthy() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 3, 0.5, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(Duration.ZERO);
+            limiter.acquire(Duration.ZERO);
+            limiter.onSuccess(Duration.ofMillis(100));
+            limiter.onSuccess(Duration.ofMillis(100));
+        }
+
+        // Capped at max
+        assertEquals(3, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testDoesNotGrowWhenLimitIsUnused() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 32, 0.5, Duration.ofSeconds(10));
+
+        for (int i = 0; i < 20; i++) {
+            limiter.acquire(Duration.ZERO);
+            limiter.onSuccess(Duration.ofMillis(100));
+        }
+
+        assertEquals(8, limiter.limit());
+    }
+
+    @Test
+    void testShrinksMultiplicativelyOnOverloadAndSlowCalls() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(16, 2, 32, 0.5, Duration.ofSeconds(1));
+
+        limiter.acquire(Duration.ZERO);
+        limiter.onOverload();
+        assertEquals(8, limiter.limit());
+
+        limiter.acquire(Duration.ZERO);
+        limiter.onSuccess(Duration.ofSeconds(5));
+        assertEquals(7, limiter.limit());
+
+        for (int i = 0; i < 10; i++) {
+            limiter.acquire(Duration.ZERO);
+            limiter.onOverload();
+        }
+        assertEquals(2, limiter.limit());
+    }
+}
@@ -0,0 +1,27 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdminTokenGuardTest {
+
+    @Test
+    void testOnlyTheConfiguredTokenIsAuthorized() {
+        AdminTokenGuard guard = new AdminTokenGuard("s3cret");
+
+        assertTrue(guard.authorized("s3cret"));
+        assertFalse(guard.authorized("s3cre"));
+        assertFalse(guard.authorized(null));
+        assertEquals(HttpStatus.FORBIDDEN, AdminTokenGuard.forbidden().getStatusCode());
+    }
+
+    @Test
+    void testNoConfiguredTokenDisablesTheEndpoints() {
+        AdminTokenGuard guard = new AdminTokenGuard("");
+
+        assertFalse(guard.authorized(""));
+        assertFalse(guard.authorized(null));
+    }
+}
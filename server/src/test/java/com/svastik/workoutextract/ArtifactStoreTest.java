@@ -0,0 +1,109 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArtifactStoreTest {
+
+    @TempDir
+    Path root;
+
+    @TempDir
+    Path scratch;
+
+    private ArtifactStore store(long maxBytes) {
+        return new ArtifactStore(root.resolve("artifacts").toString(), true, maxBytes, Duration.ofDays(90),
+            new SimpleMeterRegistry());
+    }
+
+    // An artifact as an earlier process would have left it on disk
+    private Path writeArtifact(String videoId, LocalDate fetchedOn, String type, String content) throws Exception {
+        Path directory = Files.createDirectories(root.resolve("artifacts").resolve(videoId).resolve(fetchedOn.toString()));
+        Path path = directory.resolve(type + ".gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(path))) {
+            out.write(content.getBytes());
+        }
+        return path;
+    }
+
+    @Test
+    void testArchivedFetchIsRestoredUnderYtDlpNames() throws Exception {
+        ArtifactStore store = store(1_000_000);
+        String info = "{\"title\": \"Leg Day\", \"comments\": [" + "{\"text\": \"Squat 4x10\"},".repeat(200) + "{}]}";
+        Files.writeString(scratch.resolve("abc123def45.info.json"), info);
+        Files.writeString(scratch.resolve("abc123def45.en.vtt"), "WEBVTT\n\n00:00.000 --> 00:01.000\nsquats");
+        Files.writeString(scratch.resolve("unrelated.txt"), "not an artifact");
+
+        assertEquals(2, store.archive("abc123def45", scratch));
+        assertEquals(2, store.size());
+        assertTrue(store.totalBytes() < info.length(), "artifacts are stored compressed");
+
+        Path restoreInto = Files.createDirectories(root.resolve("job"));
+        Optional<LocalDate> fetchedOn = store.restore("abc123def45", restoreInto, Duration.ofDays(1));
+
+        assertEquals(Optional.of(LocalDate.now(ZoneOffset.UTC)), fetchedOn);
+        assertEquals(info, Files.readString(restoreInto.resolve("abc123def45.info.json")));
+        assertTrue(Files.exists(restoreInto.resolve("abc123def45.en.vtt")));
+        assertFalse(Files.exists(restoreInto.resolve("unrelated.txt")));
+    }
+
+    @Test
+    void testRestoreOnlyUsesRecentFetchesWithInfoJson() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        writeArtifact("oldfetch123", today.minusDays(10), "info.json", "{}");
+        writeArtifact("subsonly123", today, "en.vtt", "WEBVTT");
+        ArtifactStore store = store(1_000_000);
+        store.scan();
+
+        assertEquals(2, store.size());
+        assertEquals(Optional.empty(), store.restore("oldfetch123", scratch, Duration.ofDays(7)));
+        assertEquals(Optional.of(today.minusDays(10)), store.restore("oldfetch123", scratch, Duration.ofDays(30)));
+        assertEquals(Optional.empty(), store.restore("subsonly123", scratch, Duration.ofDays(7)));
+        assertEquals(Optional.empty(), store.restore("oldfetch123", scratch, Duration.ZERO));
+    }
+
+    @Test
+    void testSweepExpiresOldFetchesThenEvictsLeastRecentlyUsed() throws Exception {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        Path expired = writeArtifact("expired1234", today.minusDays(120), "info.json", "{}");
+        Path older = writeArtifact("videoaaaaaa", today, "info.json", "x".repeat(500));
+        Path newer = writeArtifact("videobbbbbb", today, "info.json", "y".repeat(500));
+        Files.setLastModifiedTime(older, FileTime.from(Instant.now().minusSeconds(3600)));
+        long newerSize = Files.size(newer);
+        ArtifactStore store = store(newerSize);
+        store.scan();
+
+        store.evict();
+
+        assertFalse(Files.exists(expired));
+        assertFalse(Files.exists(expired.getParent().getParent()), "empty video directories are removed");
+        assertFalse(Files.exists(older));
+        assertTrue(Files.exists(newer));
+        assertEquals(newerSize, store.totalBytes());
+    }
+
+    @Test
+    void testDisabledStoreNeitherWritesNorRestores() throws Exception {
+        ArtifactStore store = new ArtifactStore(root.resolve("artifacts").toString(), false, 1_000_000,
+            Duration.ofDays(90), new SimpleMeterRegistry());
+        Files.writeString(scratch.resolve("abc123def45.info.json"), "{}");
+
+        assertEquals(0, store.archive("abc123def45", scratch));
+        assertFalse(Files.exists(root.resolve("artifacts")));
+        assertEquals(Optional.empty(), store.restore("abc123def45", scratch, Duration.ofDays(1)));
+    }
+}
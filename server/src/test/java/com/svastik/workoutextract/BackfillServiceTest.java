@@ -0,0 +1,155 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class BackfillServiceTest {
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    private final WorkoutAnalyzer workoutAnalyzer = mock(WorkoutAnalyzer.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ExtractionLoadMonitor extractionLoadMonitor = mock(ExtractionLoadMonitor.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<List<Object[]>> batches = new ArrayList<>();
+
+    @TempDir
+    Path root;
+
+    private ArtifactStore artifactStore;
+    private BackfillService service;
+
+    @BeforeEach
+    void setUp() {
+        artifactStore = new ArtifactStore(root.resolve("artifacts").toString(), true, 1_000_000, Duration.ofDays(90),
+            meterRegistry);
+        service = new BackfillService(videoRepository, artifactStore,
+            new ScratchDirectories(root.resolve("scratch").toString(), Duration.ofMinutes(3)), new YtDlpInfoReader(objectMapper),
+            new TranscriptReader(objectMapper), new RoutineCommentParser(meterRegistry, false), workoutAnalyzer,
+            objectMapper, jdbcTemplate, extractionLoadMonitor, meterRegistry);
+        ReflectionTestUtils.setField(service, "pageSize", 2);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "interactivePause", Duration.ofMillis(10));
+        when(workoutAnalyzer.analyze(any(), any(), any(), any(), any())).thenAnswer(invocation -> new WorkoutAnalyzer.Analysis(
+            Map.of("title", invocation.getArgument(0)), WorkoutAnalyzer.Mode.SINGLE, new LlmUsage(), 0, 0, 1));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            batches.add(List.copyOf(invocation.<List<Object[]>>getArgument(1)));
+            return new int[0];
+        });
+    }
+
+    private void archive(String youtubeVideoId, String title) throws Exception {
+        Path fetch = Files.createDirectories(root.resolve("fetch-" + youtubeVideoId));
+        Files.writeString(fetch.resolve(youtubeVideoId + ".info.json"), "{\"title\": \"" + title + "\"}");
+        Files.writeString(fetch.resolve(youtubeVideoId + ".en.vtt"), "WEBVTT\n\n00:00.000 --> 00:01.000\nsquats");
+        artifactStore.archive(youtubeVideoId, fetch);
+    }
+
+    // Keyset pages over the given (id, youtubeVideoId) rows
+    private void catalog(Object[]... rows) {
+        when(videoRepository.countAfter(anyLong())).thenAnswer(invocation -> List.of(rows).stream()
+            .filter(row -> (long) row[0] > invocation.<Long>getArgument(0)).count());
+        when(videoRepository.findKeysAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> List.of(rows).stream()
+            .filter(row -> (long) row[0] > invocation.<Long>getArgument(0))
+            .limit(invocation.<Pageable>getArgument(1).getPageSize())
+            .toList());
+    }
+
+    @Test
+    void testReExtractsArchivedVideosInKeysetOrderAndSkipsTheRest() throws Exception {
+        archive("video000001", "Leg Day");
+        archive("video000003", "Push Day");
+        archive("video000004", "Pull Day");
+        catalog(new Object[]{1L, "video000001"}, new Object[]{2L, "video000002"},
+            new Object[]{3L, "video000003"}, new Object[]{4L, "video000004"});
+
+        BackfillService.Status status = service.runToCompletion(new BackfillService.Options(2, 0, 0, 0));
+
+        assertEquals("COMPLETE", status.state());
+        assertEquals(4, status.total());
+        assertEquals(4, status.processed());
+        assertEquals(3, status.updated());
+        assertEquals(1, status.skipped());
+        assertEquals(0, status.failed());
+        assertEquals(4, status.lastId());
+        verify(videoRepository).findKeysAfter(eq(0L), any());
+        verify(videoRepository).findKeysAfter(eq(2L), any());
+        List<Object> updatedIds = batches.stream().flatMap(List::stream).map(row -> row[1]).toList();
+        assertEquals(3, updatedIds.size());
+        assertTrue(updatedIds.containsAll(List.of(1L, 3L, 4L)));
+        assertTrue(batches.stream().allMatch(batch -> batch.size() <= 2), "writes are batched");
+        Object[] legDay = batches.stream().flatMap(List::stream).filter(row -> row[1].equals(1L)).findFirst().orElseThrow();
+        assertEquals(Map.of("title", "Leg Day"), objectMapper.readValue((String) legDay[0], Map.class));
+        assertEquals(1.0, meterRegistry.get("extraction.backfill.videos").tag("result", "skipped").counter().count());
+    }
+
+    @Test
+    void testResumesAfterIdAndRecordsFailures() throws Exception {
+        archive("video000002", "Leg Day");
+        archive("video000003", "Push Day");
+        catalog(new Object[]{1L, "video000001"}, new Object[]{2L, "video000002"}, new Object[]{3L, "video000003"});
+        doThrow(new GeminiException(429, "quota exhausted"))
+            .when(workoutAnalyzer).analyze(eq("Push Day"), any(), any(), any(), any());
+
+        BackfillService.Status status = service.runToCompletion(new BackfillService.Options(1, 0, 1, 0));
+
+        assertEquals(2, status.total());
+        assertEquals(1, status.updated());
+        assertEquals(1, status.failed());
+        assertEquals("video000003", status.recentFailures().get(0).youtubeVideoId());
+        verify(videoRepository, never()).findKeysAfter(eq(0L), any());
+    }
+
+    @Test
+    void testWaitsForInteractiveJobsToDrain() throws Exception {
+        archive("video000001", "Leg Day");
+        catalog(new Object[]{1L, "video000001"});
+        when(extractionLoadMonitor.interactiveJobs()).thenReturn(2, 1, 0);
+
+        BackfillService.Status status = service.runToCompletion(new BackfillService.Options(1, 0, 0, 0));
+
+        assertEquals(1, status.updated());
+        assertEquals(2.0, meterRegistry.get("extraction.backfill.pauses").counter().count());
+    }
+
+    @Test
+    void testQueuedBulkJobsDoNotPauseTheBackfill() throws Exception {
+        archive("video000001", "Leg Day");
+        catalog(new Object[]{1L, "video000001"});
+        // A channel ingestion is draining: the executor is busy, but only with bulk jobs
+        when(extractionLoadMonitor.pendingJobs()).thenReturn(20);
+        when(extractionLoadMonitor.interactiveJobs()).thenReturn(0);
+
+        BackfillService.Status status = service.runToCompletion(new BackfillService.Options(1, 0, 0, 0));
+
+        assertEquals(1, status.updated());
+        assertEquals(0.0, meterRegistry.get("extraction.backfill.pauses").counter().count());
+    }
+
+    @Test
+    void testRateLimitSpacesVideoStarts() throws Exception {
+        catalog(new Object[]{1L, "video000001"}, new Object[]{2L, "video000002"}, new Object[]{3L, "video000003"});
+
+        long startedAt = System.nanoTime();
+        BackfillService.Status status = service.runToCompletion(new BackfillService.Options(3, 10, 0, 0));
+
+        assertEquals(3, status.skipped());
+        assertTrue(Duration.ofNanos(System.nanoTime() - startedAt).toMillis() >= 200, "3 videos at 10/s take 200ms");
+    }
+}
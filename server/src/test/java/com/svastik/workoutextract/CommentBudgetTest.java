@@ -0,0 +1,34 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommentBudgetTest {
+    private final CommentBudget budget = new CommentBudget(200, 2000);
+
+    private static YtDlpInfoReader.VideoInfo info(int commentCount, List<String> goldenComments) {
+        return new YtDlpInfoReader.VideoInfo("Leg Day", "UC1", "Coach", "t.jpg", commentCount > 0, commentCount, goldenComments);
+    }
+
+    @Test
+    void testWidensOnlyAFullSliceWithoutGoldenComments() {
+        assertTrue(budget.shouldWiden(info(200, List.of())));
+        assertFalse(budget.shouldWiden(info(120, List.of())), "every comment was already fetched");
+        assertFalse(budget.shouldWiden(info(200, List.of("Squat 4x10"))));
+        assertFalse(new CommentBudget(200, 200).shouldWiden(info(200, List.of())));
+    }
+
+    @Test
+    void testFailedRefetchDoesNotCountAsWidened() {
+        YtDlpInfoReader.VideoInfo firstPass = info(200, List.of());
+
+        // yt-dlp failed and the first-pass info JSON was read again
+        assertFalse(CommentBudget.widened(firstPass, info(200, List.of())));
+        assertFalse(CommentBudget.widened(firstPass, info(0, List.of())));
+        assertTrue(CommentBudget.widened(firstPass, info(1500, List.of("Squat 4x10"))));
+        assertTrue(CommentBudget.widened(firstPass, info(2000, List.of())));
+    }
+}
@@ -0,0 +1,153 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CreatorIngestionServiceTest {
+    private final VideoRepository videoRepository = mock(VideoRepository.class);
+    private final ExtractionJobRepository extractionJobRepository = mock(ExtractionJobRepository.class);
+    private final IngestionBatchRepository ingestionBatchRepository = mock(IngestionBatchRepository.class);
+    private final VideoExtractionService videoExtractionService = mock(VideoExtractionService.class);
+    private final ProcessSupervisor processSupervisor = mock(ProcessSupervisor.class);
+    private final List<ExtractionJob> savedJobs = new ArrayList<>();
+    // Queue of the extraction executor; nothing consumes it, so fed jobs stay in it
+    private final LinkedBlockingQueue<Runnable> executorQueue = new LinkedBlockingQueue<>(8);
+
+    @TempDir
+    Path scratchRoot;
+
+    private CreatorIngestionService service;
+
+    @BeforeEach
+    void setUp() {
+        ThreadPoolTaskExecutor executor = mock(ThreadPoolTaskExecutor.class);
+        when(executor.getThreadPoolExecutor())
+            .thenReturn(new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, executorQueue));
+        service = new CreatorIngestionService(videoRepository, extractionJobRepository, ingestionBatchRepository,
+            videoExtractionService, processSupervisor, new ScratchDirectories(scratchRoot.toString(), Duration.ofMinutes(3)), executor,
+            new SimpleMeterRegistry());
+        when(ingestionBatchRepository.save(any())).thenAnswer(invocation -> {
+            IngestionBatch batch = invocation.getArgument(0);
+            batch.setId(UUID.randomUUID());
+            return batch;
+        });
+        when(extractionJobRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            List<ExtractionJob> jobs = invocation.getArgument(0);
+            jobs.forEach(job -> job.setId(UUID.randomUUID()));
+            savedJobs.addAll(jobs);
+            return jobs;
+        });
+    }
+
+    private void listing(String stdout) {
+        when(processSupervisor.run(eq("yt-dlp list"), anyList(), any(), any()))
+            .thenReturn(new ProcessSupervisor.ProcessResult(0, stdout, "", Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void testListingUrlAcceptsChannelsAndPlaylistsOnly() {
+        assertEquals("https://www.youtube.com/@athleanx/videos", CreatorIngestionService.listingUrl("https://www.youtube.com/@athleanx"));
+        assertEquals("https://www.youtube.com/@athleanx/shorts", CreatorIngestionService.listingUrl("https://youtube.com/@athleanx/shorts"));
+        assertEquals("https://www.youtube.com/channel/UCe0TLA0EsQbE-MjuHXevj2A/videos",
+            CreatorIngestionService.listingUrl("https://www.youtube.com/channel/UCe0TLA0EsQbE-MjuHXevj2A"));
+        assertEquals("https://www.youtube.com/playlist?list=PL123abc",
+            CreatorIngestionService.listingUrl("https://www.youtube.com/playlist?list=PL123abc"));
+        assertEquals("https://www.youtube.com/playlist?list=PL123abc",
+            CreatorIngestionService.listingUrl("https://www.youtube.com/watch?v=dQw4w9WgXcQ&list=PL123abc&index=2"));
+        assertNull(CreatorIngestionService.listingUrl("https://www.youtube.com/watch?v=dQw4w9WgXcQ"));
+        assertNull(CreatorIngestionService.listingUrl("https://example.com/@athleanx"));
+    }
+
+    @Test
+    void testIngestQueuesNewVideosAsOneBulkBatch() {
+        listing("aaaaaaaaaaa\nbbbbbbbbbbb\nnot-an-id\nccccccccccc\nddddddddddd\naaaaaaaaaaa\n");
+        when(videoRepository.findExistingYoutubeVideoIds(anyCollection())).thenReturn(List.of("bbbbbbbbbbb"));
+        when(extractionJobRepository.findActiveYoutubeVideoIds(anyCollection(), any())).thenReturn(List.of("ccccccccccc"));
+
+        CreatorIngestionService.Progress progress = service.ingest("https://www.youtube.com/@athleanx");
+
+        assertEquals(4, progress.videosFound());
+        assertEquals(2, progress.videosSkipped());
+        assertEquals(2, progress.videosQueued());
+        assertEquals(List.of("aaaaaaaaaaa", "ddddddddddd"), savedJobs.stream().map(ExtractionJob::getYoutubeVideoId).toList());
+        assertTrue(savedJobs.stream().allMatch(job -> job.getPriority() == JobPriority.BULK
+            && progress.batchId().equals(job.getBatchId()) && "PENDING".equals(job.getStatus())));
+        for (ExtractionJob job : savedJobs) {
+            verify(videoExtractionService).processWorkoutExtraction(job.getId(), JobPriority.BULK);
+        }
+    }
+
+    @Test
+    void testFeedKeepsHeadroomForInteractiveJobs() {
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            ids.append(String.format("video%06d\n", i));
+        }
+        listing(ids.toString());
+        // Stands in for the executor: each fed job occupies a queue slot
+        doAnswer(invocation -> {
+            executorQueue.offer(() -> { });
+            return null;
+        }).when(videoExtractionService).processWorkoutExtraction(any(), eq(JobPriority.BULK));
+
+        service.ingest("https://www.youtube.com/playlist?list=PL123abc");
+
+        // 8 slots, 5 kept free
+        verify(videoExtractionService, times(3)).processWorkoutExtraction(any(), eq(JobPriority.BULK));
+        assertEquals(3, service.backlogSize());
+
+        executorQueue.clear();
+        service.feed();
+
+        verify(videoExtractionService, times(6)).processWorkoutExtraction(any(), eq(JobPriority.BULK));
+        assertEquals(0, service.backlogSize());
+    }
+
+    @Test
+    void testFailedListingIsReported() {
+        when(processSupervisor.run(eq("yt-dlp list"), anyList(), any(), any()))
+            .thenReturn(new ProcessSupervisor.ProcessResult(1, "", "ERROR: This channel does not exist", Duration.ofSeconds(1)));
+
+        IllegalStateException error = assertThrows(IllegalStateException.class,
+            () -> service.ingest("https://www.youtube.com/@missing"));
+
+        assertTrue(error.getMessage().contains("This channel does not exist"));
+        verifyNoInteractions(ingestionBatchRepository);
+    }
+
+    @Test
+    void testProgressAggregatesJobStatuses() {
+        IngestionBatch batch = IngestionBatch.builder().id(UUID.randomUUID()).sourceUrl("https://www.youtube.com/@athleanx/videos")
+            .videosFound(12).videosSkipped(2).videosQueued(10).build();
+        when(ingestionBatchRepository.findById(batch.getId())).thenReturn(Optional.of(batch));
+        when(extractionJobRepository.countByStatusForBatch(batch.getId())).thenReturn(List.of(
+            new Object[]{"PENDING", 4L}, new Object[]{"FETCHING", 1L}, new Object[]{"ANALYZING_WORKOUT", 1L},
+            new Object[]{"COMPLETE", 3L}, new Object[]{"FAILED", 1L}));
+
+        CreatorIngestionService.Progress progress = service.progress(batch.getId()).orElseThrow();
+
+        assertEquals("RUNNING", progress.state());
+        assertEquals(4, progress.pending());
+        assertEquals(2, progress.running());
+        assertEquals(3, progress.complete());
+        assertEquals(1, progress.failed());
+        assertEquals(40, progress.percent());
+    }
+}
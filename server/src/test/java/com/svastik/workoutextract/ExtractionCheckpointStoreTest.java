@@ -0,0 +1,78 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExtractionCheckpointStoreTest {
+
+    @Mock
+    private ExtractionCheckpointRepository repository;
+
+    private final UUID jobId = UUID.randomUUID();
+
+    private ExtractionCheckpointStore store() {
+        return new ExtractionCheckpointStore(repository, new ObjectMapper(), Duration.ofDays(7));
+    }
+
+    @Test
+    void testSavedStageOutputLoadsBack() {
+        VideoExtractionService.FetchedVideo fetched = new VideoExtractionService.FetchedVideo(
+            "Leg Day", "UC123", "Coach", "https://img", List.of("Squat 4x10"), "today we squat");
+        when(repository.findByJobIdAndStage(jobId, "clean")).thenReturn(Optional.empty());
+
+        store().save(jobId, "clean", fetched);
+
+        ArgumentCaptor<ExtractionCheckpoint> saved = ArgumentCaptor.forClass(ExtractionCheckpoint.class);
+        verify(repository).save(saved.capture());
+        assertEquals(jobId, saved.getValue().getJobId());
+        assertNotNull(saved.getValue().getCreatedAt());
+
+        when(repository.findByJobIdAndStage(jobId, "clean")).thenReturn(Optional.of(saved.getValue()));
+        assertEquals(Optional.of(fetched), store().load(jobId, "clean", VideoExtractionService.FetchedVideo.class));
+    }
+
+    @Test
+    void testSaveReplacesCheckpointOfSameStage() {
+        ExtractionCheckpoint existing = ExtractionCheckpoint.builder().id(7L).jobId(jobId).stage("llm").payload("{}").build();
+        when(repository.findByJobIdAndStage(jobId, "llm")).thenReturn(Optional.of(existing));
+
+        store().save(jobId, "llm", java.util.Map.of("workoutType", "Legs"));
+
+        verify(repository).save(existing);
+        assertEquals("{\"workoutType\":\"Legs\"}", existing.getPayload());
+    }
+
+    @Test
+    void testRepositoryFailuresOnlyLoseTheCheckpoint() {
+        when(repository.findByJobIdAndStage(any(), any())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertEquals(Optional.empty(), store().load(jobId, "llm", java.util.Map.class));
+        assertDoesNotThrow(() -> store().save(jobId, "llm", java.util.Map.of()));
+    }
+
+    @Test
+    void testOnlyTransientFailuresAreRetried() {
+        assertTrue(VideoExtractionService.isTransient(new GeminiException(503, "overloaded")));
+        assertTrue(VideoExtractionService.isTransient(new RuntimeException("wrapped", new GeminiException("timed out", null))));
+        assertTrue(VideoExtractionService.isTransient(new ProcessTimeoutException("yt-dlp fetch", Duration.ofMinutes(3))));
+        assertTrue(VideoExtractionService.isTransient(new QueryTimeoutException("slow")));
+        assertFalse(VideoExtractionService.isTransient(new GeminiException(400, "bad request")));
+        assertFalse(VideoExtractionService.isTransient(new RuntimeException("yt-dlp metadata extraction failed")));
+    }
+}
@@ -0,0 +1,162 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ExtractionJobQueueTest {
+    private final ExtractionJobRepository extractionJobRepository = mock(ExtractionJobRepository.class);
+    private final VideoExtractionService videoExtractionService = mock(VideoExtractionService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch finish = new CountDownLatch(1);
+    private ThreadPoolTaskExecutor executor;
+
+    @AfterEach
+    void shutdown() {
+        finish.countDown();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private ExtractionJobQueue queue(ThreadPoolTaskExecutor executor) {
+        return queue(executor, 0);
+    }
+
+    private ExtractionJobQueue queue(ThreadPoolTaskExecutor executor, int reservedInteractiveWorkers) {
+        return new ExtractionJobQueue(extractionJobRepository, videoExtractionService, executor, meterRegistry,
+            Duration.ofMinutes(2), 3, reservedInteractiveWorkers, Duration.ofMinutes(5));
+    }
+
+    private static ExtractionJob job(JobPriority priority) {
+        ExtractionJob job = new ExtractionJob();
+        job.setId(UUID.randomUUID());
+        job.setPriority(priority);
+        return job;
+    }
+
+    // Jobs block until the test ends so they stay held
+    private CountDownLatch blockJobs(int jobs) {
+        CountDownLatch started = new CountDownLatch(jobs);
+        doAnswer(invocation -> {
+            started.countDown();
+            finish.await(10, TimeUnit.SECONDS);
+            return null;
+        }).when(videoExtractionService).runWorkoutExtraction(any());
+        return started;
+    }
+
+    @Test
+    void testPollClaimsOneJobPerIdleWorkerAndRunsThem() throws Exception {
+        executor = AsyncConfig.buildExtractionExecutor(2, 10, false);
+        ExtractionJobQueue queue = queue(executor);
+        List<ExtractionJob> jobs = List.of(job(JobPriority.INTERACTIVE), job(JobPriority.BULK));
+        List<UUID> jobIds = jobs.stream().map(ExtractionJob::getId).toList();
+        when(extractionJobRepository.claimJobs(eq(queue.owner()), any(), any(), eq(3), eq(2), eq(true), eq(300L))).thenReturn(2);
+        when(extractionJobRepository.findClaimed(eq(queue.owner()), any())).thenReturn(jobs);
+        CountDownLatch started = blockJobs(2);
+
+        queue.poll();
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        verify(videoExtractionService).runWorkoutExtraction(jobIds.get(0));
+        verify(videoExtractionService).runWorkoutExtraction(jobIds.get(1));
+        assertEquals(2, queue.heldCount());
+        assertEquals(2.0, meterRegistry.get("extraction.queue.claimed").counter().count());
+
+        // Both workers busy: nothing more is claimed
+        queue.poll();
+        verify(extractionJobRepository, times(1)).claimJobs(any(), any(), any(), anyInt(), anyInt(), anyBoolean(), anyLong());
+    }
+
+    @Test
+    void testReservedWorkersOnlyClaimInteractiveJobs() throws Exception {
+        executor = AsyncConfig.buildExtractionExecutor(2, 10, false, 1, Duration.ofMinutes(5));
+        ExtractionJobQueue queue = queue(executor, 1);
+        when(extractionJobRepository.claimJobs(any(), any(), any(), anyInt(), anyInt(), eq(true), anyLong())).thenReturn(1);
+        when(extractionJobRepository.findClaimed(any(), any())).thenReturn(List.of(job(JobPriority.BULK)));
+        CountDownLatch started = blockJobs(1);
+
+        queue.poll();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        // The only bulk slot is taken: the idle reserved worker may only claim interactive jobs
+        queue.poll();
+
+        verify(extractionJobRepository, times(1)).claimJobs(any(), any(), any(), anyInt(), anyInt(), eq(true), anyLong());
+        // Once in each poll: the first claimed the bulk job for the bulk slot and the reserved worker separately
+        verify(extractionJobRepository, times(2)).claimJobs(any(), any(), any(), anyInt(), eq(1), eq(false), anyLong());
+    }
+
+    @Test
+    void testHeartbeatRenewsRunningJobsAndCountsLostLeases() throws Exception {
+        executor = AsyncConfig.buildExtractionExecutor(1, 10, false);
+        ExtractionJobQueue queue = queue(executor);
+        ExtractionJob job = job(JobPriority.INTERACTIVE);
+        UUID jobId = job.getId();
+        when(extractionJobRepository.claimJobs(any(), any(), any(), anyInt(), anyInt(), anyBoolean(), anyLong())).thenReturn(1);
+        when(extractionJobRepository.findClaimed(any(), any())).thenReturn(List.of(job));
+        CountDownLatch started = blockJobs(1);
+        queue.poll();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        when(extractionJobRepository.renewLeases(any(), any(), any())).thenReturn(0);
+        queue.heartbeat();
+
+        verify(extractionJobRepository).renewLeases(eq(Set.of(jobId)), eq(queue.owner()), any());
+        assertEquals(1.0, meterRegistry.get("extraction.queue.leases_lost").counter().count());
+    }
+
+    @Test
+    void testHeartbeatWithNothingRunningSkipsTheDatabase() {
+        executor = AsyncConfig.buildExtractionExecutor(1, 10, false);
+
+        queue(executor).heartbeat();
+
+        verifyNoInteractions(extractionJobRepository);
+    }
+
+    @Test
+    void testRejectedJobHandsLeaseBack() {
+        ThreadPoolTaskExecutor rejecting = mock(ThreadPoolTaskExecutor.class);
+        when(rejecting.getMaxPoolSize()).thenReturn(1);
+        when(rejecting.getThreadPoolExecutor())
+            .thenReturn(new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()));
+        doThrow(new TaskRejectedException("full")).when(rejecting).execute(any(Runnable.class));
+        ExtractionJobQueue queue = queue(rejecting);
+        ExtractionJob job = job(JobPriority.INTERACTIVE);
+        UUID jobId = job.getId();
+        when(extractionJobRepository.claimJobs(any(), any(), any(), anyInt(), anyInt(), anyBoolean(), anyLong())).thenReturn(1);
+        when(extractionJobRepository.findClaimed(any(), any())).thenReturn(List.of(job));
+
+        queue.poll();
+
+        verify(extractionJobRepository).releaseLease(jobId, queue.owner());
+        assertEquals(0, queue.heldCount());
+        verifyNoInteractions(videoExtractionService);
+    }
+
+    @Test
+    void testExhaustedJobsAreFailed() {
+        executor = AsyncConfig.buildExtractionExecutor(1, 10, false);
+        when(extractionJobRepository.failExhausted(any(), eq(3), anyString())).thenReturn(2);
+
+        queue(executor).failExhausted();
+
+        assertEquals(2.0, meterRegistry.get("extraction.queue.exhausted").counter().count());
+    }
+}
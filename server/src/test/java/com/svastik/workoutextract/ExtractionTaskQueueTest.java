@@ -0,0 +1,138 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionTaskQueueTest {
+    private final List<String> ran = new ArrayList<>();
+
+    private Runnable task(JobPriority priority, String name) {
+        return new ExtractionTaskQueue.Prioritized(priority, () -> ran.add(name));
+    }
+
+    // Runs the next task the queue hands out and returns its name
+    private String runNext(ExtractionTaskQueue queue) {
+        Runnable next = queue.poll();
+        assertNotNull(next, "expected a task");
+        next.run();
+        return ran.get(ran.size() - 1);
+    }
+
+    @Test
+    void testInteractiveJobsOvertakeRecentBulkJobs() {
+        ExtractionTaskQueue queue = new ExtractionTaskQueue(10, 4, Duration.ofMinutes(5));
+        queue.offer(task(JobPriority.BULK, "bulk-1"));
+        queue.offer(task(JobPriority.BULK, "bulk-2"));
+        queue.offer(task(JobPriority.INTERACTIVE, "interactive-1"));
+        queue.offer(() -> ran.add("unprioritized"));
+
+        assertEquals("interactive-1", runNext(queue));
+        assertEquals("unprioritized", runNext(queue));
+        assertEquals("bulk-1", runNext(queue));
+        assertEquals("bulk-2", runNext(queue));
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void testBulkJobsThatWaitedLongerThanTheHeadStartGoFirst() throws Exception {
+        ExtractionTaskQueue queue = new ExtractionTaskQueue(10, 4, Duration.ofMillis(50));
+        queue.offer(task(JobPriority.BULK, "bulk-old"));
+        Thread.sleep(100);
+        queue.offer(task(JobPriority.BULK, "bulk-new"));
+        queue.offer(task(JobPriority.INTERACTIVE, "interactive"));
+
+        assertEquals("bulk-old", runNext(queue));
+        assertEquals("interactive", runNext(queue));
+        assertEquals("bulk-new", runNext(queue));
+    }
+
+    @Test
+    void testBulkJobsBeyondTheWorkerLimitWaitForARunningOneToFinish() throws Exception {
+        ExtractionTaskQueue queue = new ExtractionTaskQueue(10, 1, Duration.ZERO);
+        queue.offer(task(JobPriority.BULK, "bulk-1"));
+        queue.offer(task(JobPriority.BULK, "bulk-2"));
+
+        Runnable first = queue.poll();
+        assertNotNull(first);
+        assertEquals(1, queue.bulkRunning());
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS), "the only bulk worker is busy");
+
+        queue.offer(task(JobPriority.INTERACTIVE, "interactive"));
+        assertEquals("interactive", runNext(queue));
+
+        first.run();
+        assertEquals(0, queue.bulkRunning());
+        assertEquals("bulk-2", runNext(queue));
+    }
+
+    @Test
+    void testInteractivePendingLeavesBulkJobsOut() {
+        ExtractionTaskQueue queue = new ExtractionTaskQueue(10, 2, Duration.ofMinutes(5));
+        queue.offer(task(JobPriority.BULK, "bulk-1"));
+        queue.offer(task(JobPriority.BULK, "bulk-2"));
+        queue.offer(task(JobPriority.BULK, "bulk-3"));
+        Runnable runningBulk = queue.poll();
+        assertEquals(0, queue.interactivePending());
+
+        queue.offer(task(JobPriority.INTERACTIVE, "interactive"));
+        assertEquals(1, queue.interactivePending());
+        Runnable runningInteractive = queue.poll();
+        assertEquals(1, queue.interactivePending(), "a running interactive job still counts");
+
+        runningInteractive.run();
+        runningBulk.run();
+        assertEquals(0, queue.interactivePending());
+    }
+
+    @Test
+    void testOffersBeyondCapacityAreRefused() {
+        ExtractionTaskQueue queue = new ExtractionTaskQueue(2, 1, Duration.ZERO);
+
+        assertTrue(queue.offer(task(JobPriority.BULK, "bulk")));
+        assertTrue(queue.offer(task(JobPriority.INTERACTIVE, "interactive")));
+        assertFalse(queue.offer(task(JobPriority.INTERACTIVE, "rejected")));
+        assertEquals(0, queue.remainingCapacity());
+    }
+
+    @Test
+    void testExecutorRunsQueuedJobsByPriority() throws Exception {
+        ThreadPoolTaskExecutor executor = AsyncConfig.buildExtractionExecutor(1, 10, false, 0, Duration.ofMinutes(5));
+        try {
+            CountDownLatch gate = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(3);
+            List<String> order = Collections.synchronizedList(new ArrayList<>());
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (String name : List.of("bulk-1", "bulk-2")) {
+                executor.execute(new ExtractionTaskQueue.Prioritized(JobPriority.BULK, () -> {
+                    order.add(name);
+                    done.countDown();
+                }));
+            }
+            executor.execute(new ExtractionTaskQueue.Prioritized(JobPriority.INTERACTIVE, () -> {
+                order.add("interactive");
+                done.countDown();
+            }));
+            gate.countDown();
+
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("interactive", "bulk-1", "bulk-2"), order);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class GeminiClientTest {
+    private static final String ANSWER = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"{}\"}]}}]}";
+
+    private final LlmResponseCacheRepository cacheRepository = mock(LlmResponseCacheRepository.class);
+    private HttpServer server;
+    private String baseUrl;
+    private final AtomicReference<String> apiKeyHeader = new AtomicReference<>();
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicInteger flakyCalls = new AtomicInteger();
+    private final AtomicReference<String> structuredAnswer = new AtomicReference<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 1, 8, 0.5, Duration.ofSeconds(10));
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/models/test-model:generateContent", exchange -> {
+            apiKeyHeader.set(exchange.getRequestHeaders().getFirst("x-goog-api-key"));
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(ANSWER.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, compressed.size());
+            exchange.getResponseBody().write(compressed.toByteArray());
+            exchange.close();
+        });
+        server.createContext("/models/overloaded:generateContent", exchange -> {
+            byte[] body = "{\"error\":{\"code\":503}}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(503, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/models/structured:generateContent", exchange -> {
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = structuredAnswer.get().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/models/bad-request:generateContent", exchange -> {
+            exchange.sendResponseHeaders(400, -1);
+            exchange.close();
+        });
+        server.createContext("/models/flaky:generateContent", exchange -> {
+            // Throttled once, then answers
+            boolean throttled = flakyCalls.incrementAndGet() == 1;
+            byte[] body = (throttled ? "{\"error\":{\"code\":429}}" : ANSWER).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(throttled ? 429 : 200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.createContext("/models/slow:generateContent", exchange -> {
+            try {
+                Thread.sleep(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        });
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    private GeminiClient client(String model, String apiKey) {
+        LlmResponseCache cache = new LlmResponseCache(cacheRepository, new ObjectMapper(), meterRegistry, true, 1_000_000, Duration.ofDays(1));
+        GeminiRetryPolicy retryPolicy = new GeminiRetryPolicy(3, Duration.ofMillis(10), Duration.ofMillis(50));
+        return new GeminiClient(new ObjectMapper(), cache, limiter, retryPolicy, meterRegistry, baseUrl, model, apiKey,
+            Duration.ofSeconds(2), Duration.ofMillis(500));
+    }
+
+    private static Instant inSeconds(long seconds) {
+        return Instant.now().plusSeconds(seconds);
+    }
+
+    @Test
+    void testSendsPromptAndDecodesGzipResponse() {
+        String response = client("test-model", "secret").generateContent("4 sets of squats", inSeconds(5));
+
+        assertEquals(ANSWER, response);
+        assertEquals("secret", apiKeyHeader.get());
+        assertTrue(requestBody.get().contains("\"text\":\"4 sets of squats\""));
+        verify(cacheRepository).save(argThat(entry -> entry.getResponse().equals(ANSWER) && entry.getModel().equals("test-model")));
+    }
+
+    @Test
+    void testCachedResponseSkipsUpstream() {
+        when(cacheRepository.findById(anyString())).thenReturn(Optional.of(
+            LlmResponseCacheEntry.builder().response(ANSWER).build()));
+
+        // The "overloaded" model would answer 503 if it were called
+        String response = client("overloaded", "secret").generateContent("4 sets of squats", inSeconds(5));
+
+        assertEquals(ANSWER, response);
+        verify(cacheRepository).recordHit(anyString(), any());
+        verify(cacheRepository, never()).save(any());
+    }
+
+    @Test
+    void testClientErrorIsNotRetried() {
+        GeminiException e = assertThrows(GeminiException.class, () -> client("bad-request", "secret").generateContent("x", inSeconds(5)));
+
+        assertEquals(400, e.getStatusCode());
+        assertEquals(0.0, meterRegistry.counter("gemini.retries").count());
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void testThrottledCallIsRetriedAndShrinksLimit() {
+        String response = client("flaky", "secret").generateContent("x", inSeconds(5));
+
+        assertEquals(ANSWER, response);
+        assertEquals(2, flakyCalls.get());
+        assertEquals(2, limiter.limit());
+        assertEquals(1.0, meterRegistry.counter("gemini.retries").count());
+        assertEquals(1.0, meterRegistry.counter("gemini.rejections", "source", "upstream").count());
+    }
+
+    @Test
+    void testPersistentOverloadGivesUpAfterMaxAttempts() {
+        GeminiException e = assertThrows(GeminiException.class, () -> client("overloaded", "secret").generateContent("x", inSeconds(5)));
+
+        assertEquals(503, e.getStatusCode());
+        assertEquals(2.0, meterRegistry.counter("gemini.retries").count());
+        assertEquals(1, limiter.limit());
+        verify(cacheRepository, never()).save(any());
+    }
+
+    @Test
+    void testSlowUpstreamStopsAtDeadline() {
+        GeminiClient client = client("slow", "secret");
+        long startedAt = System.nanoTime();
+        GeminiException e = assertThrows(GeminiException.class,
+            () -> client.generateContent("x", Instant.now().plusMillis(700)));
+
+        assertEquals(0, e.getStatusCode());
+        assertTrue(e.getMessage().contains("did not respond"));
+        assertTrue(Duration.ofNanos(System.nanoTime() - startedAt).toMillis() < 1500);
+    }
+
+    private static String envelope(String text) throws Exception {
+        return new ObjectMapper().writeValueAsString(Map.of(
+            "candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", text))), "finishReason", "STOP"))));
+    }
+
+    @Test
+    void testStructuredOutputIsDeserializedIntoRecords() throws Exception {
+        structuredAnswer.set(envelope("""
+            {"equipment": ["Dumbbells"], "workoutType": "Legs", "targetMuscles": ["Quads"],
+             "exercises": [{"name": "Goblet Squat", "reps": "10", "sets": "4", "rest": null,
+                            "emoji": "x", "notes": "Chest up", "difficulty": "Medium"}]}
+            """));
+
+        WorkoutPlan plan = client("structured", "secret")
+            .generateStructured("prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5));
+
+        assertEquals(List.of("Dumbbells"), plan.equipment());
+        assertEquals(new Exercise("Goblet Squat", "10", null, "4", "x", "Chest up", "Medium"), plan.exercises().get(0));
+        assertTrue(requestBody.get().contains("\"responseMimeType\":\"application/json\""));
+        assertTrue(requestBody.get().contains("\"responseSchema\""));
+    }
+
+    @Test
+    void testStructuredOutputToleratesCodeFence() throws Exception {
+        structuredAnswer.set(envelope("```json\n{\"workoutType\": \"Core {hard}\", \"exercises\": []}\n```"));
+
+        WorkoutPlan plan = client("structured", "secret")
+            .generateStructured("prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5));
+
+        assertEquals("Core {hard}", plan.workoutType());
+    }
+
+    @Test
+    void testUnusableStructuredOutputIsContentError() {
+        structuredAnswer.set("{\"candidates\": [{\"finishReason\": \"SAFETY\"}]}");
+
+        GeminiException e = assertThrows(GeminiException.class, () -> client("structured", "secret")
+            .generateStructured("prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5)));
+
+        assertTrue(e.isContentError());
+        assertTrue(e.getMessage().contains("SAFETY"));
+    }
+
+    @Test
+    void testStructuredAnswerIsCachedOnlyOnceItDeserializes() throws Exception {
+        structuredAnswer.set(envelope("{\"workoutType\": \"Legs\", \"exercises\": []}"));
+        GeminiClient client = client("structured", "secret");
+
+        client.generateStructured("prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5));
+        verify(cacheRepository).save(any());
+
+        structuredAnswer.set(new ObjectMapper().writeValueAsString(Map.of("candidates", List.of(Map.of(
+            "content", Map.of("parts", List.of(Map.of("text", "{\"workoutType\": \"Le"))), "finishReason", "MAX_TOKENS")))));
+        assertThrows(GeminiException.class, () -> client
+            .generateStructured("other prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5)));
+        structuredAnswer.set("{\"candidates\": [{\"finishReason\": \"SAFETY\"}]}");
+        assertThrows(GeminiException.class, () -> client
+            .generateStructured("third prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5)));
+
+        verify(cacheRepository, times(1)).save(any());
+    }
+
+    @Test
+    void testUnusableCachedAnswerIsDropped() {
+        when(cacheRepository.findById(anyString())).thenReturn(Optional.of(
+            LlmResponseCacheEntry.builder().response("{\"candidates\": [{\"finishReason\": \"SAFETY\"}]}").build()));
+
+        assertThrows(GeminiException.class, () -> client("structured", "secret")
+            .generateStructured("prompt", WorkoutPlan.RESPONSE_SCHEMA, WorkoutPlan.class, inSeconds(5)));
+
+        verify(cacheRepository).deleteById(anyString());
+        verify(cacheRepository, never()).save(any());
+    }
+
+    @Test
+    void testOutermostJsonObjectSkipsBracesInStrings() {
+        assertEquals("{\"a\": \"}{\", \"b\": {\"c\": 1}}",
+            GeminiClient.outermostJsonObject("Here you go: {\"a\": \"}{\", \"b\": {\"c\": 1}} hope it helps {x}"));
+        assertNull(GeminiClient.outermostJsonObject("no json {here"));
+    }
+
+    @Test
+    void testMissingApiKeyFailsFast() {
+        GeminiClient client = client("test-model", "");
+
+        assertFalse(client.isConfigured());
+        assertThrows(IllegalStateException.class, () -> client.generateContent("x", inSeconds(5)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightJobRegistryTest {
+    private final InFlightJobRegistry registry = new InFlightJobRegistry();
+
+    @Test
+    void testSlowJobCreationOnlyHoldsUpTheSameVideo() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        UUID slowJob = UUID.randomUUID();
+        CompletableFuture<InFlightJobRegistry.Claim> slow = CompletableFuture.supplyAsync(() ->
+            registry.claim("aaaaaaaaaaa", () -> {
+                saving.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return slowJob;
+            }));
+        assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        UUID otherJob = UUID.randomUUID();
+        InFlightJobRegistry.Claim other = registry.claim("bbbbbbbbbbb", () -> otherJob);
+        assertEquals(new InFlightJobRegistry.Claim(otherJob, true), other);
+
+        CompletableFuture<InFlightJobRegistry.Claim> waiting = CompletableFuture.supplyAsync(() ->
+            registry.claim("aaaaaaaaaaa", () -> fail("job created twice")));
+        assertFalse(waiting.isDone());
+        release.countDown();
+
+        assertEquals(new InFlightJobRegistry.Claim(slowJob, true), slow.get(5, TimeUnit.SECONDS));
+        assertEquals(new InFlightJobRegistry.Claim(slowJob, false), waiting.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedCreationLeavesTheVideoClaimable() {
+        assertThrows(IllegalStateException.class, () -> registry.claim("aaaaaaaaaaa", () -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertTrue(registry.find("aaaaaaaaaaa").isEmpty());
+
+        UUID jobId = UUID.randomUUID();
+        assertTrue(registry.claim("aaaaaaaaaaa", () -> jobId).created());
+        assertEquals(jobId, registry.find("aaaaaaaaaaa").orElseThrow());
+
+        registry.release(jobId);
+        assertEquals(0, registry.size());
+    }
+}
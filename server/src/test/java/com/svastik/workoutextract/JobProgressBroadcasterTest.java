@@ -0,0 +1,135 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class JobProgressBroadcasterTest {
+    private final JobProgressBroadcaster broadcaster = new JobProgressBroadcaster(mock(ExtractionJobRepository.class));
+    private final UUID jobId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(broadcaster, "streamBuffer", 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        broadcaster.shutdown();
+    }
+
+    private ExtractionJob job(String status, int progress) {
+        ExtractionJob job = new ExtractionJob();
+        job.setId(jobId);
+        job.setYoutubeVideoId("dQw4w9WgXcQ");
+        job.setStatus(status);
+        job.setProgress(progress);
+        return job;
+    }
+
+    // Records the progress of every event sent; sends wait until the gate opens
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<Integer> progress = new CopyOnWriteArrayList<>();
+        private final CountDownLatch gate;
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter(CountDownLatch gate) {
+            this.gate = gate;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            builder.build().stream()
+                .filter(part -> part.getData() instanceof Map)
+                .forEach(part -> progress.add((Integer) ((Map<?, ?>) part.getData()).get("progress")));
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+    }
+
+    @Test
+    void testSubscriberReceivesEveryEventInOrder() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        broadcaster.subscribe(emitter, job("FETCHING", 10), Optional::empty);
+
+        assertEquals(1, broadcaster.subscriberCount());
+        broadcaster.publish(job("FETCHING", 20));
+        broadcaster.publish(job("FETCHING", 20));
+        broadcaster.publish(job("ANALYZING_WORKOUT", 60));
+        broadcaster.publish(job("COMPLETE", 100));
+
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(10, 20, 60, 100), emitter.progress);
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    @Test
+    void testStalledSubscriberDoesNotBlockPublishing() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        RecordingEmitter stalled = new RecordingEmitter(gate);
+        RecordingEmitter fast = new RecordingEmitter(new CountDownLatch(0));
+        broadcaster.subscribe(stalled, job("FETCHING", 0), Optional::empty);
+        broadcaster.subscribe(fast, job("FETCHING", 0), Optional::empty);
+
+        long started = System.nanoTime();
+        for (int progress = 1; progress < 90; progress++) {
+            broadcaster.publish(job("FETCHING", progress));
+        }
+        broadcaster.publish(job("COMPLETE", 100));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000, "publish waited on a client");
+
+        gate.countDown();
+        assertTrue(stalled.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(fast.completed.await(5, TimeUnit.SECONDS));
+
+        assertEquals(100, stalled.progress.get(stalled.progress.size() - 1), "the final state is always delivered");
+        assertTrue(stalled.progress.size() <= 6, "events beyond the buffer are dropped: " + stalled.progress);
+        assertEquals(100, fast.progress.get(fast.progress.size() - 1));
+        assertTrue(isAscending(fast.progress));
+        assertTrue(isAscending(stalled.progress));
+    }
+
+    @Test
+    void testJobFinishingBeforeRegistrationStillCompletesTheStream() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(new CountDownLatch(0));
+        // The controller read FETCHING, then the pipeline published COMPLETE to no subscribers
+        broadcaster.publish(job("COMPLETE", 100));
+
+        broadcaster.subscribe(emitter, job("FETCHING", 60), () -> Optional.of(job("COMPLETE", 100)));
+
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(60, 100), emitter.progress);
+        assertEquals(0, broadcaster.subscriberCount());
+    }
+
+    private static boolean isAscending(List<Integer> values) {
+        for (int i = 1; i < values.size(); i++) {
+            if (values.get(i) <= values.get(i - 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,113 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobProgressStoreTest {
+
+    @Mock
+    private ExtractionJobRepository extractionJobRepository;
+
+    @Mock
+    private JobProgressBroadcaster jobProgressBroadcaster;
+
+    private JobProgressStore store;
+    private ExtractionJob job;
+
+    @BeforeEach
+    void setUp() {
+        store = new JobProgressStore(extractionJobRepository, jobProgressBroadcaster, new SimpleMeterRegistry());
+        job = new ExtractionJob();
+        job.setId(UUID.randomUUID());
+        job.setYoutubeVideoId("dQw4w9WgXcQ");
+        job.setStatus("PENDING");
+        job.setProgress(0);
+    }
+
+    @Test
+    void testProgressUpdatesStayInMemoryUntilFlush() {
+        job.setStatus("FETCHING");
+        for (int progress = 10; progress <= 60; progress += 10) {
+            job.setProgress(progress);
+            store.update(job);
+        }
+
+        verify(extractionJobRepository, never()).save(any());
+        assertEquals(60, store.find(job.getId()).orElseThrow().getProgress());
+
+        store.flush();
+        store.flush();
+
+        verify(extractionJobRepository, times(1)).save(argThat(saved -> saved.getProgress() == 60));
+        verify(jobProgressBroadcaster, times(6)).publish(any(ExtractionJob.class));
+    }
+
+    @Test
+    void testTerminalTransitionIsPersistedImmediately() {
+        job.setStatus("FETCHING");
+        job.setProgress(50);
+        store.update(job);
+
+        job.setStatus("COMPLETE");
+        job.setProgress(100);
+        store.update(job);
+
+        verify(extractionJobRepository).save(argThat(saved -> "COMPLETE".equals(saved.getStatus())));
+        assertTrue(store.find(job.getId()).isEmpty());
+
+        store.flush();
+        verifyNoMoreInteractions(extractionJobRepository);
+    }
+
+    @Test
+    void testFailedTerminalWriteIsRetriedByTheNextFlush() {
+        job.setStatus("FAILED");
+        job.setErrorMessage("yt-dlp exited with code 1");
+        when(extractionJobRepository.save(any())).thenThrow(new IllegalStateException("connection refused")).thenReturn(job);
+
+        store.update(job);
+
+        assertEquals("FAILED", store.find(job.getId()).orElseThrow().getStatus());
+
+        store.flush();
+
+        verify(extractionJobRepository, times(2)).save(argThat(saved -> "FAILED".equals(saved.getStatus())));
+        assertTrue(store.find(job.getId()).isEmpty());
+    }
+
+    @Test
+    void testFailedFlushKeepsTheJobDirty() {
+        job.setStatus("FETCHING");
+        job.setProgress(30);
+        store.update(job);
+        when(extractionJobRepository.save(any())).thenThrow(new IllegalStateException("connection refused")).thenReturn(job);
+
+        store.flush();
+        store.flush();
+        store.flush();
+
+        verify(extractionJobRepository, times(2)).save(argThat(saved -> saved.getProgress() == 30));
+    }
+
+    @Test
+    void testFindReturnsACopy() {
+        job.setStatus("FETCHING");
+        job.setProgress(20);
+        store.update(job);
+
+        store.find(job.getId()).orElseThrow().setProgress(99);
+
+        assertEquals(20, store.find(job.getId()).orElseThrow().getProgress());
+    }
+}
@@ -0,0 +1,80 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LlmResponseCacheTest {
+
+    @Mock
+    private LlmResponseCacheRepository repository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private LlmResponseCache cache(long maxBytes) {
+        return new LlmResponseCache(repository, new ObjectMapper(), meterRegistry, true, maxBytes, Duration.ofDays(30));
+    }
+
+    private static Map<String, Object> request(String prompt) {
+        return Map.of("contents", List.of(Map.of("parts", List.of(Map.of("text", prompt)))));
+    }
+
+    @Test
+    void testKeyIgnoresWhitespaceButNotModelOrContent() {
+        LlmResponseCache cache = cache(1000);
+
+        String key = cache.keyFor("gemini-1.5-flash", request("Squat 4x10\n\nLunges  3x12"));
+
+        assertEquals(64, key.length());
+        assertEquals(key, cache.keyFor("gemini-1.5-flash", request("  Squat 4x10 Lunges 3x12 ")));
+        assertNotEquals(key, cache.keyFor("gemini-1.5-pro", request("Squat 4x10 Lunges 3x12")));
+        assertNotEquals(key, cache.keyFor("gemini-1.5-flash", request("Squat 5x10 Lunges 3x12")));
+    }
+
+    @Test
+    void testHitsAndMissesAreCounted() {
+        when(repository.findById("a")).thenReturn(java.util.Optional.of(LlmResponseCacheEntry.builder().response("{}").build()));
+        when(repository.findById("b")).thenReturn(java.util.Optional.empty());
+        LlmResponseCache cache = cache(1000);
+
+        assertEquals("{}", cache.get("a").orElseThrow());
+        assertTrue(cache.get("b").isEmpty());
+
+        verify(repository).recordHit(eq("a"), any());
+        assertEquals(1.0, meterRegistry.counter("gemini.cache.requests", "result", "hit").count());
+        assertEquals(1.0, meterRegistry.counter("gemini.cache.requests", "result", "miss").count());
+    }
+
+    @Test
+    void testDatabaseFailureIsAMiss() {
+        when(repository.findById(anyString())).thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertTrue(cache(1000).get("a").isEmpty());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedUntilWithinBudget() {
+        when(repository.totalSizeBytes()).thenReturn(1500L);
+        when(repository.findLeastRecentlyUsed(any())).thenReturn(List.of(
+            new Object[]{"oldest", 400}, new Object[]{"older", 300}, new Object[]{"recent", 500}));
+
+        cache(1000).evict();
+
+        verify(repository).deleteNotAccessedSince(any());
+        verify(repository).deleteAllByIdInBatch(List.of("oldest", "older"));
+        assertEquals(2.0, meterRegistry.counter("gemini.cache.evictions").count());
+    }
+}
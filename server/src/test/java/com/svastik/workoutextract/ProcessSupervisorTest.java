@@ -0,0 +1,55 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProcessSupervisorTest {
+
+    @TempDir
+    Path workingDirectory;
+
+    private final ProcessSupervisor supervisor = new ProcessSupervisor(2, new SimpleMeterRegistry());
+
+    @AfterEach
+    void tearDown() {
+        supervisor.shutdown();
+    }
+
+    @Test
+    void testCapturesExitCodeAndBothStreams() {
+        ProcessSupervisor.ProcessResult result = supervisor.run("test",
+            List.of("sh", "-c", "echo out; echo err >&2; exit 3"), workingDirectory, Duration.ofSeconds(10));
+
+        assertEquals(3, result.exitCode());
+        assertEquals("out", result.stdout().strip());
+        assertEquals("err", result.stderrTail());
+    }
+
+    @Test
+    void testChattyStderrDoesNotBlockTheProcess() {
+        // Far more than a pipe buffer; would hang if stderr were not drained
+        ProcessSupervisor.ProcessResult result = supervisor.run("test",
+            List.of("sh", "-c", "head -c 3000000 /dev/zero >&2; echo done"), workingDirectory, Duration.ofSeconds(10));
+
+        assertEquals(0, result.exitCode());
+        assertEquals("done", result.stdout().strip());
+    }
+
+    @Test
+    void testKillsProcessTreeAfterDeadline() {
+        assertThrows(ProcessTimeoutException.class, () -> supervisor.run("test",
+            List.of("sh", "-c", "sleep 30 & sleep 30"), workingDirectory, Duration.ofMillis(300)));
+
+        assertEquals(0, supervisor.liveProcessCount());
+        assertEquals(1, supervisor.killedProcessCount());
+        assertEquals(1, supervisor.timedOutProcessCount());
+    }
+}
@@ -0,0 +1,74 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptBudgeterTest {
+    private static final String CHATTER = "thanks for watching and do not forget to like and subscribe to the channel for more ";
+
+    private final PromptBudgeter budgeter = new PromptBudgeter(12000);
+
+    @Test
+    void testEstimatesFourCharactersPerToken() {
+        assertEquals(0, PromptBudgeter.estimateTokens(""));
+        assertEquals(1, PromptBudgeter.estimateTokens("abc"));
+        assertEquals(3, PromptBudgeter.estimateTokens("squat 4x10"));
+    }
+
+    @Test
+    void testTranscriptWithinBudgetIsUnchanged() {
+        String transcript = "do 4 sets of 10 squats";
+
+        assertSame(transcript, budgeter.fit(transcript, 100));
+    }
+
+    @Test
+    void testKeepsSegmentsWithWorkoutSignalInOrder() {
+        String transcript = CHATTER.repeat(10)
+            + "first up squats 4x10 then lunges 3 sets of 12 each side "
+            + CHATTER.repeat(10)
+            + "finish with a plank hold for 60 seconds and 20 burpees "
+            + CHATTER.repeat(10);
+
+        String fitted = budgeter.fit(transcript, 120);
+
+        assertTrue(PromptBudgeter.estimateTokens(fitted) <= 120, fitted);
+        int squats = fitted.indexOf("squats 4x10");
+        int plank = fitted.indexOf("plank hold for 60 seconds");
+        assertTrue(squats >= 0 && plank > squats, fitted);
+        assertTrue(fitted.contains("..."));
+    }
+
+    @Test
+    void testSignalCountsNumbersNextToUnitsAndExerciseNames() {
+        String[] words = "rest 90 seconds then 3x12 curls and 7 friends".split(" ");
+
+        // "90 seconds" (2), "3x12" (3), "curls" (1); "7 friends" scores nothing
+        assertEquals(6, PromptBudgeter.signal(words, 0, words.length));
+    }
+
+    @Test
+    void testChunksOverlapAndCoverEveryWord() {
+        StringBuilder transcript = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            transcript.append("word").append(i).append(' ');
+        }
+
+        List<String> chunks = PromptBudgeter.chunk(transcript.toString(), 100, 10);
+
+        assertTrue(chunks.size() > 1);
+        for (String chunk : chunks) {
+            assertTrue(PromptBudgeter.estimateTokens(chunk) <= 100, chunk);
+        }
+        assertTrue(chunks.get(0).startsWith("word0 "));
+        assertTrue(chunks.get(chunks.size() - 1).endsWith("word499"));
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            String firstWord = chunks.get(i).split(" ")[0];
+            assertTrue(previous.contains(" " + firstWord + " ") || previous.endsWith(" " + firstWord), "chunk " + i + " does not overlap");
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.svastik.workoutextract;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutineCommentParserTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RoutineCommentParser parser = new RoutineCommentParser(meterRegistry, true);
+
+    @Test
+    void testParsesPinnedRoutineWithMixedFormats() {
+        List<RoutineCommentParser.ParsedExercise> exercises = RoutineCommentParser.parseComment("""
+            🔥 LEG DAY 🔥
+            1. Squat 4x10
+            2. RDL: 3 x 8-10 (90s rest)
+            3. Walking lunges 3x12 each leg, rest 60s
+            4x15 calf raises
+            """);
+
+        assertEquals(List.of(
+            new RoutineCommentParser.ParsedExercise("Squat", "4", "10", null),
+            new RoutineCommentParser.ParsedExercise("RDL", "3", "8-10", "90s"),
+            new RoutineCommentParser.ParsedExercise("Walking lunges", "3", "12 each leg", "60s"),
+            new RoutineCommentParser.ParsedExercise("calf raises", "4", "15", null)), exercises);
+    }
+
+    @Test
+    void testSkipsExplicitHeaders() {
+        assertEquals(3, RoutineCommentParser.parseComment("""
+            Day 1 - Legs
+            Squat 4x10
+            # Finisher
+            Lunges 3x12
+            Week 2:
+            Leg press 3x15
+            """).size());
+    }
+
+    @Test
+    void testSingleLineCommaSeparatedRoutine() {
+        assertEquals(3, RoutineCommentParser.parseComment("Squat 4x10, Bench press 3x8, Barbell row 3x10").size());
+    }
+
+    @Test
+    void testRejectsCommentsThatAreNotFullyParsed() {
+        // Chatter around the numbers
+        assertNull(RoutineCommentParser.parseComment("I did squats 3x10 and lunges 3x12 and it destroyed me"));
+        // One line without sets x reps
+        assertNull(RoutineCommentParser.parseComment("Squat 4x10\nBench press 3x8\nFinish with some stretching and a long walk outside"));
+        // A short line that is neither an exercise nor an explicit header
+        assertNull(RoutineCommentParser.parseComment("Squat 4x10\nRDL 3x8\nFarmer walk"));
+        // Unknown movement
+        assertNull(RoutineCommentParser.parseComment("Squat 4x10\nThe thing 3x8"));
+        // Too few exercises
+        assertNull(RoutineCommentParser.parseComment("Squat 4x10"));
+    }
+
+    @Test
+    void testWorkoutHasLlmShapeAndTransparencyFlags() {
+        Map<String, Object> workout = parser.parse(List.of(
+            "great video!!",
+            "Goblet squat 3x12\nDumbbell bench press 3x10 rest 2 min")).orElseThrow();
+
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> exercises = (List<Map<String, Object>>) workout.get("exercises");
+        assertEquals("Goblet squat", exercises.get(0).get("name"));
+        assertEquals("present", exercises.get(0).get("reps_transparency"));
+        assertEquals("missing", exercises.get(0).get("rest_transparency"));
+        assertEquals("2 min", exercises.get(1).get("rest"));
+        assertEquals("present", exercises.get(1).get("rest_transparency"));
+        assertEquals(List.of("Dumbbells", "Bench"), workout.get("equipment"));
+        assertEquals("Full Body", workout.get("workoutType"));
+        assertEquals(1.0, meterRegistry.counter("extraction.fast_path", "result", "resolved").count());
+    }
+
+    @Test
+    void testFallsBackToLlmAndCountsIt() {
+        assertTrue(parser.parse(List.of("loved this one, 3 sets felt hard")).isEmpty());
+        assertTrue(new RoutineCommentParser(meterRegistry, false).parse(List.of("Squat 4x10\nLunge 3x12")).isEmpty());
+
+        assertEquals(1.0, meterRegistry.counter("extraction.fast_path", "result", "llm").count());
+    }
+}
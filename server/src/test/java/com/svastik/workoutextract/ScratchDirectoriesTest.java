@@ -0,0 +1,66 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScratchDirectoriesTest {
+
+    @TempDir
+    Path root;
+
+    @Test
+    void testCloseRemovesDirectoryAndContents() throws Exception {
+        ScratchDirectories scratchDirectories = new ScratchDirectories(root.toString(), Duration.ofMinutes(3));
+
+        Path directory;
+        try (ScratchDirectories.ScratchDirectory scratch = scratchDirectories.create(UUID.randomUUID())) {
+            directory = scratch.path();
+            Files.writeString(scratch.resolve("abc.info.json"), "{}");
+            Files.createDirectories(scratch.resolve("nested"));
+            Files.writeString(scratch.resolve("nested/abc.en.vtt"), "WEBVTT");
+            assertTrue(Files.isDirectory(directory));
+        }
+
+        assertFalse(Files.exists(directory));
+    }
+
+    @Test
+    void testRemoveLeftoversOnlyTouchesJobDirectories() throws Exception {
+        Path leftover = Files.createDirectories(root.resolve("job-" + UUID.randomUUID()));
+        age(Files.writeString(leftover.resolve("abc.comments.json"), "[]"));
+        age(leftover);
+        Path unrelated = age(Files.createDirectories(root.resolve("keep-me")));
+
+        new ScratchDirectories(root.toString(), Duration.ofMinutes(3)).removeLeftovers();
+
+        assertFalse(Files.exists(leftover));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    @Test
+    void testRemoveLeftoversKeepsDirectoriesStillBeingWritten() throws Exception {
+        // Another instance sharing the root is mid-fetch: its directory is old but yt-dlp just wrote into it
+        Path running = Files.createDirectories(root.resolve("job-" + UUID.randomUUID()));
+        Path partial = Files.writeString(running.resolve("abc.info.json.part"), "{");
+        age(running);
+
+        new ScratchDirectories(root.toString(), Duration.ofMinutes(3)).removeLeftovers();
+
+        assertTrue(Files.exists(partial));
+    }
+
+    // Past twice the fetch timeout the tests use
+    private static Path age(Path path) throws Exception {
+        Files.setLastModifiedTime(path, FileTime.from(Instant.now().minus(Duration.ofMinutes(7))));
+        return path;
+    }
+}
@@ -0,0 +1,77 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranscriptReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final TranscriptReader reader = new TranscriptReader(new ObjectMapper());
+
+    @Test
+    void testCollapsesRollingAutoCaptions() throws Exception {
+        String raw;
+        try (InputStream in = getClass().getResourceAsStream("/captions/rolling-auto-captions.en.vtt")) {
+            raw = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        String transcript = reader.readVtt(new StringReader(raw));
+
+        assertTrue(transcript.startsWith("what's up guys welcome back to the channel today we're doing a full leg day at home"));
+        assertTrue(transcript.contains("four sets of 10 reps nice and slow"));
+        assertTrue(transcript.endsWith("that's the whole workout & I'll see you next time"));
+        // Every spoken line appears exactly once
+        assertEquals(transcript.indexOf("goblet squats"), transcript.lastIndexOf("goblet squats"));
+        assertFalse(transcript.contains("-->"));
+        assertFalse(transcript.contains("<c>"));
+        assertFalse(transcript.contains("[Music]"));
+    }
+
+    @Test
+    void testStripsAnnotationsAndFillers() throws Exception {
+        String vtt = """
+            WEBVTT
+
+            1
+            00:00:01.000 --> 00:00:03.000
+            [Speaker 1] um, squats (slowly)... like four sets
+
+            2
+            00:00:03.000 --> 00:00:05.000
+            you know rest &gt; 60 seconds
+            """;
+
+        assertEquals("squats four sets rest > 60 seconds", reader.readVtt(new StringReader(vtt)));
+    }
+
+    @Test
+    void testReadsJson3Events() throws Exception {
+        Path subtitles = dir.resolve("abc.en.json3");
+        Files.writeString(subtitles, """
+            {"wireMagic": "pb3", "events": [
+              {"tStartMs": 0, "segs": [{"utf8": "squat"}, {"utf8": " 4x10", "tOffsetMs": 300}]},
+              {"tStartMs": 900, "aAppend": 1, "segs": [{"utf8": "\\n"}]},
+              {"tStartMs": 1000, "segs": [{"utf8": "squat 4x10\\nrest 60s"}]}
+            ]}
+            """);
+
+        assertEquals("squat 4x10 rest 60s", reader.read(subtitles));
+    }
+
+    @Test
+    void testMissingFileReturnsNull() throws Exception {
+        assertNull(reader.read(dir.resolve("abc.en.vtt")));
+        assertNull(reader.read(null));
+    }
+}
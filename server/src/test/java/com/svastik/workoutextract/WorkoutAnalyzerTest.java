@@ -0,0 +1,190 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class WorkoutAnalyzerTest {
+    private final GeminiClient geminiClient = mock(GeminiClient.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant deadline = Instant.now().plusSeconds(60);
+
+    @BeforeEach
+    void configureClient() {
+        when(geminiClient.isConfigured()).thenReturn(true);
+    }
+
+    private WorkoutAnalyzer analyzer(double singleCallRatio) {
+        return analyzer(singleCallRatio, 12000);
+    }
+
+    private WorkoutAnalyzer analyzer(double singleCallRatio, int promptTokenBudget) {
+        return new WorkoutAnalyzer(geminiClient, new PromptBudgeter(promptTokenBudget), new ObjectMapper(), meterRegistry, singleCallRatio);
+    }
+
+    private WorkoutAnalyzer.Analysis analyze(WorkoutAnalyzer.Mode mode) {
+        return analyzer(1.0).analyze(mode, "Leg Day", "Coach", List.of("Squat 4x10"), "today we squat", deadline);
+    }
+
+    private static WorkoutExtraction extraction(boolean basedOnMetadata, ExtractedExercise... exercises) {
+        return new WorkoutExtraction(List.of("Barbell"), List.of(exercises), "Legs", List.of("Quads"), basedOnMetadata);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> firstExercise(Map<String, Object> workout) {
+        return ((List<Map<String, Object>>) workout.get("exercises")).get(0);
+    }
+
+    @Test
+    void testSingleCallUsesObservedValuesAndFillsEstimates() {
+        when(geminiClient.generateStructured(anyString(), eq(WorkoutExtraction.RESPONSE_SCHEMA), eq(WorkoutExtraction.class), any(), any()))
+            .thenReturn(extraction(false,
+                new ExtractedExercise("Squat", "10", "10", "null", "90s", null, "3-4", "🦵", "Brace", "Hard")));
+
+        WorkoutAnalyzer.Analysis analysis = analyze(WorkoutAnalyzer.Mode.SINGLE);
+
+        Map<String, Object> squat = firstExercise(analysis.workout());
+        assertEquals("10", squat.get("reps"));
+        assertEquals("present", squat.get("reps_transparency"));
+        assertEquals("3-4", squat.get("sets"));
+        assertEquals("missing", squat.get("sets_transparency"));
+        assertEquals("90s", squat.get("rest"));
+        assertEquals("missing", squat.get("rest_transparency"));
+        assertNull(analysis.workout().get("llmAdjusted"));
+        assertEquals(WorkoutAnalyzer.Mode.SINGLE, analysis.mode());
+        verify(geminiClient, times(1)).generateStructured(anyString(), any(), any(), any(), any());
+        assertEquals(1, meterRegistry.get("extraction.llm.duration").tag("mode", "single").timer().count());
+    }
+
+    @Test
+    void testSingleCallBuiltFromMetadataIsMarkedAdjusted() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutExtraction.class), any(), any()))
+            .thenReturn(extraction(true,
+                new ExtractedExercise("Lunge", null, "12", null, "60s", null, "3", "🦵", "Step long", "Medium")));
+
+        Map<String, Object> workout = analyze(WorkoutAnalyzer.Mode.SINGLE).workout();
+
+        assertEquals(true, workout.get("llmAdjusted"));
+        assertEquals("corrupted_transcript", workout.get("adjustmentReason"));
+        assertEquals("missing", firstExercise(workout).get("reps_transparency"));
+    }
+
+    @Test
+    void testSingleCallWithoutExercisesUsesFallbackWorkout() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutExtraction.class), any(), any()))
+            .thenReturn(extraction(false));
+
+        Map<String, Object> workout = analyze(WorkoutAnalyzer.Mode.SINGLE).workout();
+
+        assertEquals(true, workout.get("llmAdjusted"));
+        assertFalse(((List<?>) workout.get("exercises")).isEmpty());
+    }
+
+    @Test
+    void testStagedModeEstimatesMissingValuesInSecondCall() {
+        Exercise extracted = new Exercise("Squat", "10", null, null, "🦵", "Brace", "Hard");
+        Exercise estimated = new Exercise("Squat", "10", "90s", "4", "🦵", "Brace", "Hard");
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutPlan.class), any(), any()))
+            .thenReturn(new WorkoutPlan(List.of(), List.of(extracted), "Legs", List.of()),
+                new WorkoutPlan(List.of(), List.of(estimated), "Legs", List.of()));
+
+        WorkoutAnalyzer.Analysis analysis = analyze(WorkoutAnalyzer.Mode.STAGED);
+
+        Map<String, Object> squat = firstExercise(analysis.workout());
+        assertEquals("4", squat.get("sets"));
+        assertEquals("present", squat.get("reps_transparency"));
+        assertEquals("missing", squat.get("sets_transparency"));
+        verify(geminiClient, times(2)).generateStructured(anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testTransportFailureIsThrown() {
+        when(geminiClient.generateStructured(anyString(), any(), any(), any(), any()))
+            .thenThrow(new GeminiException(503, "overloaded"));
+
+        assertThrows(GeminiException.class, () -> analyze(WorkoutAnalyzer.Mode.SINGLE));
+    }
+
+    @Test
+    void testRatioPicksMode() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutPlan.class), any(), any()))
+            .thenReturn(new WorkoutPlan(List.of(), List.of(), "Legs", List.of()));
+
+        WorkoutAnalyzer.Analysis analysis = analyzer(0.0)
+            .analyze("Leg Day", "Coach", List.of(), "today we squat", deadline);
+
+        assertEquals(WorkoutAnalyzer.Mode.STAGED, analysis.mode());
+    }
+
+    @Test
+    void testLongTranscriptIsCutToPromptBudget() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutExtraction.class), any(), any()))
+            .thenReturn(extraction(false,
+                new ExtractedExercise("Squat", "10", "10", null, "90s", "4", "4", "🦵", "Brace", "Hard")));
+        String transcript = "so today we are just going to chat about the weekend and my new camera setup ".repeat(200)
+            + "now do 4 sets of 10 squats with 90 seconds rest";
+
+        WorkoutAnalyzer.Analysis analysis = analyzer(1.0, 1500)
+            .analyze(WorkoutAnalyzer.Mode.SINGLE, "Leg Day", "Coach", List.of("Squat 4x10"), transcript, deadline);
+
+        assertTrue(analysis.transcriptTokensSent() < analysis.transcriptTokens());
+        verify(geminiClient).generateStructured(argThat((String prompt) -> prompt.contains("4 sets of 10 squats")
+            && PromptBudgeter.estimateTokens(prompt) <= 1500), any(), any(), any(), any());
+    }
+
+    @Test
+    void testLongTranscriptIsExtractedInChunksAndMerged() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutExtraction.class), any(), any()))
+            .thenAnswer(invocation -> {
+                String prompt = invocation.getArgument(0);
+                ExtractedExercise exercise = prompt.contains("lunges")
+                    ? new ExtractedExercise("Walking Lunges", "12", "12", null, "60s", "3", "3", "🦵", "Long steps", "Medium")
+                    : new ExtractedExercise("Squats", null, "8-12", null, "90s", null, "4", "🦵", "Brace", "Hard");
+                return extraction(false, exercise);
+            });
+        WorkoutAnalyzer analyzer = analyzer(1.0);
+        ReflectionTestUtils.setField(analyzer, "chunkingThresholdTokens", 100);
+        ReflectionTestUtils.setField(analyzer, "chunkTokens", 150);
+        ReflectionTestUtils.setField(analyzer, "overlapTokens", 20);
+        String transcript = "warm up and then squats for four sets keep your chest up ".repeat(40)
+            + "now walking lunges 3 sets of 12 ".repeat(20);
+
+        WorkoutAnalyzer.Analysis analysis = analyzer
+            .analyze(WorkoutAnalyzer.Mode.SINGLE, "Leg Day", "Coach", List.of(), transcript, deadline);
+
+        assertEquals(WorkoutAnalyzer.Mode.CHUNKED, analysis.mode());
+        assertTrue(analysis.chunks() > 2);
+        verify(geminiClient, times(analysis.chunks())).generateStructured(anyString(), any(), any(), any(), any());
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> exercises = (List<Map<String, Object>>) analysis.workout().get("exercises");
+        assertEquals(List.of("Squats", "Walking Lunges"), exercises.stream().map(e -> e.get("name")).toList());
+        assertEquals("present", exercises.get(1).get("reps_transparency"));
+    }
+
+    @Test
+    void testLongCommentsDoNotMultiplyChunks() {
+        when(geminiClient.generateStructured(anyString(), any(), eq(WorkoutExtraction.class), any(), any()))
+            .thenReturn(extraction(false,
+                new ExtractedExercise("Squat", "10", "10", null, "90s", "4", "4", "🦵", "Brace", "Hard")));
+        // The comments take nearly the whole prompt budget, leaving less than the overlap per chunk
+        List<String> comments = List.of("Squat 4x10 and then hold the bottom position for a slow count ".repeat(90));
+        String transcript = "warm up and then squats for four sets keep your chest up ".repeat(600);
+
+        WorkoutAnalyzer.Analysis analysis = analyzer(1.0, 1500)
+            .analyze(WorkoutAnalyzer.Mode.SINGLE, "Leg Day", "Coach", comments, transcript, deadline);
+
+        assertEquals(WorkoutAnalyzer.Mode.CHUNKED, analysis.mode());
+        assertTrue(analysis.chunks() <= 8, "chunks: " + analysis.chunks());
+        verify(geminiClient, times(analysis.chunks())).generateStructured(anyString(), any(), any(), any(), any());
+    }
+}
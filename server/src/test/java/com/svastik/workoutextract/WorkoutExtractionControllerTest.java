@@ -5,9 +5,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.*;
 
@@ -27,6 +32,18 @@ class WorkoutExtractionControllerTest {
     @Mock
     private ExtractionJobRepository extractionJobRepository;
 
+    @Mock
+    private ExtractionLoadMonitor extractionLoadMonitor;
+
+    @Mock
+    private JobProgressStore jobProgressStore;
+
+    @Mock
+    private JobProgressBroadcaster jobProgressBroadcaster;
+
+    @Spy
+    private InFlightJobRegistry inFlightJobRegistry = new InFlightJobRegistry();
+
     @InjectMocks
     private WorkoutExtractionController controller;
 
@@ -55,7 +72,7 @@ class WorkoutExtractionControllerTest {
 
         when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
         when(extractionJobRepository.save(any(ExtractionJob.class))).thenReturn(testJob);
-        doNothing().when(videoExtractionService).processWorkoutExtraction(any(UUID.class));
+        doNothing().when(videoExtractionService).processWorkoutExtraction(any(UUID.class), any());
 
         ResponseEntity<?> response = controller.extractWorkout(request);
 
@@ -67,7 +84,83 @@ class WorkoutExtractionControllerTest {
 
         verify(videoRepository).findByYoutubeVideoId("dQw4w9WgXcQ");
         verify(extractionJobRepository).save(any(ExtractionJob.class));
-        verify(videoExtractionService).processWorkoutExtraction(testJob.getId());
+        verify(videoExtractionService).processWorkoutExtraction(testJob.getId(), JobPriority.INTERACTIVE);
+    }
+
+    @Test
+    void testExtractWorkout_BulkPriorityIsStoredAndQueuedAsBulk() {
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        request.put("priority", "bulk");
+
+        when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
+        when(extractionJobRepository.save(any(ExtractionJob.class))).thenAnswer(invocation -> {
+            ExtractionJob saved = invocation.getArgument(0);
+            assertEquals(JobPriority.BULK, saved.getPriority());
+            return testJob;
+        });
+
+        ResponseEntity<?> response = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        verify(videoExtractionService).processWorkoutExtraction(testJob.getId(), JobPriority.BULK);
+    }
+
+    @Test
+    void testExtractWorkout_InvalidPriority() {
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        request.put("priority", "urgent");
+
+        ResponseEntity<?> response = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        verifyNoInteractions(extractionJobRepository, videoExtractionService);
+    }
+
+    @Test
+    void testExtractWorkout_DurableQueueLeavesJobForWorkers() {
+        ReflectionTestUtils.setField(controller, "durableQueue", true);
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+
+        when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
+        when(extractionJobRepository.save(any(ExtractionJob.class))).thenReturn(testJob);
+
+        ResponseEntity<?> response = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(testJob.getId(), ((Map<?, ?>) response.getBody()).get("jobId"));
+        verifyNoInteractions(videoExtractionService);
+        // Coalescing now goes through extraction_jobs, which any node can see
+        assertEquals(0, inFlightJobRegistry.size());
+    }
+
+    @Test
+    void testRetryExtraction_RestartsFailedJob() {
+        testJob.setStatus("FAILED");
+        testJob.setErrorMessage("Gemini overloaded");
+        when(extractionJobRepository.findById(testJob.getId())).thenReturn(Optional.of(testJob));
+
+        ResponseEntity<?> response = controller.retryExtraction(testJob.getId());
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(testJob.getId(), ((Map<?, ?>) response.getBody()).get("jobId"));
+        assertEquals("PENDING", testJob.getStatus());
+        assertNull(testJob.getErrorMessage());
+        verify(extractionJobRepository).resetLease(testJob.getId());
+        verify(videoExtractionService).processWorkoutExtraction(testJob.getId(), JobPriority.INTERACTIVE);
+    }
+
+    @Test
+    void testRetryExtraction_RejectsJobThatHasNotFailed() {
+        testJob.setStatus("ANALYZING_WORKOUT");
+        when(extractionJobRepository.findById(testJob.getId())).thenReturn(Optional.of(testJob));
+
+        ResponseEntity<?> response = controller.retryExtraction(testJob.getId());
+
+        assertEquals(HttpStatus.CONFLICT, response.getStatusCode());
+        verifyNoInteractions(videoExtractionService);
     }
 
     @Test
@@ -84,7 +177,7 @@ class WorkoutExtractionControllerTest {
 
         verify(videoRepository).findByYoutubeVideoId("dQw4w9WgXcQ");
         verify(extractionJobRepository, never()).save(any());
-        verify(videoExtractionService, never()).processWorkoutExtraction(any());
+        verify(videoExtractionService, never()).processWorkoutExtraction(any(), any());
     }
 
     @Test
@@ -145,13 +238,70 @@ class WorkoutExtractionControllerTest {
 
             when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
             when(extractionJobRepository.save(any(ExtractionJob.class))).thenReturn(testJob);
-            doNothing().when(videoExtractionService).processWorkoutExtraction(any(UUID.class));
+            doNothing().when(videoExtractionService).processWorkoutExtraction(any(UUID.class), any());
 
             ResponseEntity<?> response = controller.extractWorkout(request);
             assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+
+            // Simulate the previous extraction finishing so the next URL starts a fresh job
+            inFlightJobRegistry.release(testJob.getId());
         }
     }
 
+    @Test
+    void testExtractWorkout_CoalescesRequestsForInFlightVideo() {
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+
+        when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
+        when(extractionJobRepository.save(any(ExtractionJob.class))).thenReturn(testJob);
+
+        ResponseEntity<?> first = controller.extractWorkout(request);
+        ResponseEntity<?> second = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.ACCEPTED, second.getStatusCode());
+        assertEquals(((Map<?, ?>) first.getBody()).get("jobId"), ((Map<?, ?>) second.getBody()).get("jobId"));
+        verify(extractionJobRepository, times(1)).save(any(ExtractionJob.class));
+        verify(videoExtractionService, times(1)).processWorkoutExtraction(testJob.getId(), JobPriority.INTERACTIVE);
+    }
+
+    @Test
+    void testExtractWorkout_ReusesActiveJobFromAnotherNode() {
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+        testJob.setStatus("FETCHING");
+
+        when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
+        when(extractionJobRepository.findActiveByYoutubeVideoId(eq("dQw4w9WgXcQ"), any())).thenReturn(List.of(testJob));
+
+        ResponseEntity<?> response = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+        assertEquals(testJob.getId(), ((Map<?, ?>) response.getBody()).get("jobId"));
+        verify(extractionJobRepository, never()).save(any());
+        verify(videoExtractionService, never()).processWorkoutExtraction(any(), any());
+    }
+
+    @Test
+    void testExtractWorkout_RejectsWhenExecutorSaturated() {
+        Map<String, String> request = new HashMap<>();
+        request.put("url", "https://www.youtube.com/watch?v=dQw4w9WgXcQ");
+
+        when(videoRepository.findByYoutubeVideoId("dQw4w9WgXcQ")).thenReturn(Optional.empty());
+        when(extractionJobRepository.save(any(ExtractionJob.class))).thenReturn(testJob);
+        when(extractionJobRepository.findById(testJob.getId())).thenReturn(Optional.of(testJob));
+        doThrow(new TaskRejectedException("queue full")).when(videoExtractionService).processWorkoutExtraction(testJob.getId(), JobPriority.INTERACTIVE);
+        when(extractionLoadMonitor.retryAfterSeconds()).thenReturn(45L);
+
+        ResponseEntity<?> response = controller.extractWorkout(request);
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, response.getStatusCode());
+        assertEquals("45", response.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("FAILED", testJob.getStatus());
+        assertTrue(inFlightJobRegistry.find("dQw4w9WgXcQ").isEmpty());
+        verify(extractionLoadMonitor).recordRejection();
+    }
+
     @Test
     void testGetExtractionStatus_Success() {
         UUID jobId = UUID.randomUUID();
@@ -177,6 +327,22 @@ class WorkoutExtractionControllerTest {
         assertEquals("dQw4w9WgXcQ", responseBody.get("resultYoutubeVideoId"));
     }
 
+    @Test
+    void testGetExtractionStatus_ServesRunningJobFromMemory() {
+        UUID jobId = UUID.randomUUID();
+        testJob.setId(jobId);
+        testJob.setStatus("FETCHING");
+        testJob.setProgress(40);
+
+        when(jobProgressStore.find(jobId)).thenReturn(Optional.of(testJob));
+
+        ResponseEntity<?> response = controller.getExtractionStatus(jobId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(testJob, response.getBody());
+        verify(extractionJobRepository, never()).findById(any());
+    }
+
     @Test
     void testGetExtractionStatus_JobNotFound() {
         UUID jobId = UUID.randomUUID();
@@ -223,6 +389,33 @@ class WorkoutExtractionControllerTest {
         assertEquals(testJob, response.getBody());
     }
 
+    @Test
+    void testStreamExtractionStatus_SubscribesToRunningJob() {
+        UUID jobId = UUID.randomUUID();
+        testJob.setId(jobId);
+        testJob.setStatus("FETCHING");
+        SseEmitter emitter = new SseEmitter();
+
+        when(jobProgressStore.find(jobId)).thenReturn(Optional.of(testJob));
+        when(jobProgressBroadcaster.subscribe(eq(testJob), any())).thenReturn(emitter);
+
+        ResponseEntity<SseEmitter> response = controller.streamExtractionStatus(jobId);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertSame(emitter, response.getBody());
+    }
+
+    @Test
+    void testStreamExtractionStatus_JobNotFound() {
+        UUID jobId = UUID.randomUUID();
+        when(extractionJobRepository.findById(jobId)).thenReturn(Optional.empty());
+
+        ResponseEntity<SseEmitter> response = controller.streamExtractionStatus(jobId);
+
+        assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+        verifyNoInteractions(jobProgressBroadcaster);
+    }
+
     @Test
     void testGetWorkoutByYoutubeVideoId_Success() {
         String youtubeVideoId = "test123";
@@ -0,0 +1,59 @@
+package com.svastik.workoutextract;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkoutMergerTest {
+
+    private static ExtractedExercise exercise(String name, String repsObserved, String notes) {
+        return new ExtractedExercise(name, repsObserved, "10", null, "60s", null, "3", "💪", notes, "Medium");
+    }
+
+    private static WorkoutExtraction chunk(String type, boolean basedOnMetadata, ExtractedExercise... exercises) {
+        return new WorkoutExtraction(List.of("Dumbbells"), List.of(exercises), type, List.of("Chest"), basedOnMetadata);
+    }
+
+    @Test
+    void testDuplicatesAcrossChunksAreMergedInFirstSeenOrder() {
+        WorkoutExtraction merged = WorkoutMerger.merge(List.of(
+            chunk("Push", false, exercise("Push-Ups", null, "Elbows in"), exercise("Bench Press", "8", "Arch")),
+            chunk("Push", false, exercise("push ups", "15", "Elbows in, full lockout"), exercise("Dips", "10", ""))));
+
+        assertEquals(List.of("Push-Ups", "Bench Press", "Dips"), merged.exercises().stream().map(ExtractedExercise::name).toList());
+        ExtractedExercise pushUps = merged.exercises().get(0);
+        assertEquals("15", pushUps.repsObserved());
+        assertEquals("Elbows in, full lockout", pushUps.notes());
+        assertEquals(List.of("Dumbbells"), merged.equipment());
+        assertFalse(merged.basedOnMetadata());
+    }
+
+    @Test
+    void testMergeIsIndependentOfTimingButFollowsChunkOrder() {
+        List<WorkoutExtraction> chunks = List.of(
+            chunk("Upper Body", false, exercise("Rows", "12", "")),
+            chunk("Pull Day", false, exercise("Curls", "10", "")),
+            chunk("Pull Day", false, exercise("Row", "10", "")));
+
+        WorkoutExtraction merged = WorkoutMerger.merge(chunks);
+
+        assertEquals(merged, WorkoutMerger.merge(chunks));
+        assertEquals("Pull Day", merged.workoutType());
+        assertEquals(List.of("Rows", "Curls"), merged.exercises().stream().map(ExtractedExercise::name).toList());
+        assertEquals("12", merged.exercises().get(0).repsObserved());
+    }
+
+    @Test
+    void testMetadataChunksOnlyUsedWhenNothingCameFromTranscript() {
+        WorkoutExtraction invented = chunk("Full Body", true, exercise("Burpees", null, ""));
+
+        WorkoutExtraction merged = WorkoutMerger.merge(List.of(invented, chunk("Legs", false, exercise("Squats", "5", ""))));
+        assertEquals(List.of("Squats"), merged.exercises().stream().map(ExtractedExercise::name).toList());
+
+        WorkoutExtraction fallback = WorkoutMerger.merge(List.of(invented, chunk("Legs", false)));
+        assertTrue(fallback.basedOnMetadata());
+        assertEquals(List.of("Burpees"), fallback.exercises().stream().map(ExtractedExercise::name).toList());
+    }
+}
@@ -0,0 +1,83 @@
+package com.svastik.workoutextract;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class YtDlpInfoReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private final YtDlpInfoReader reader = new YtDlpInfoReader(new ObjectMapper());
+
+    @Test
+    void testReadsMetadataAndSkipsUnusedFields() throws Exception {
+        Path info = dir.resolve("abc.info.json");
+        Files.writeString(info, """
+            {"id": "abc", "formats": [{"url": "x", "fragments": [{"path": "a"}]}],
+             "title": "Leg Day", "channel_id": "UC1", "uploader": "Coach",
+             "thumbnails": [{"url": "t1"}], "thumbnail": "t.jpg", "tags": ["legs"]}
+            """);
+
+        YtDlpInfoReader.VideoInfo videoInfo = reader.read(info, dir.resolve("abc.comments.json"));
+
+        assertEquals("Leg Day", videoInfo.title());
+        assertEquals("UC1", videoInfo.channelId());
+        assertEquals("Coach", videoInfo.uploader());
+        assertEquals("t.jpg", videoInfo.thumbnail());
+        assertFalse(videoInfo.hasComments());
+        assertTrue(videoInfo.goldenComments().isEmpty());
+    }
+
+    @Test
+    void testSelectsPinnedThenMostLikedWorkoutComments() throws Exception {
+        Path info = dir.resolve("abc.info.json");
+        Files.writeString(info, """
+            {"title": "Leg Day", "comments": [
+              {"text": "great video", "like_count": 9000},
+              {"text": "Squat 4x10", "like_count": 5, "author_thumbnail": "x"},
+              {"text": "Routine: lunges 3 sets", "like_count": 40, "is_pinned": true},
+              {"text": "12 reps each", "like_count": 300},
+              {"text": "Squat 4x10", "like_count": 700},
+              {"text": "how many sets?", "like_count": 100}
+            ]}
+            """);
+
+        YtDlpInfoReader.VideoInfo videoInfo = reader.read(info, null);
+
+        assertTrue(videoInfo.hasComments());
+        assertEquals(6, videoInfo.commentCount());
+        assertEquals(List.of("Routine: lunges 3 sets", "Squat 4x10", "12 reps each"), videoInfo.goldenComments());
+    }
+
+    @Test
+    void testFallsBackToSeparateCommentsFile() throws Exception {
+        Path info = dir.resolve("abc.info.json");
+        Files.writeString(info, "{\"title\": \"Leg Day\"}");
+        Path comments = dir.resolve("abc.comments.json");
+        Files.writeString(comments, "[{\"text\": \"my routine\", \"like_count\": 1, \"pinned\": true}]");
+
+        YtDlpInfoReader.VideoInfo videoInfo = reader.read(info, comments);
+
+        assertTrue(videoInfo.hasComments());
+        assertEquals(List.of("my routine"), videoInfo.goldenComments());
+    }
+
+    @Test
+    void testCollectorKeepsOnlyTopCandidates() {
+        GoldenCommentCollector collector = new GoldenCommentCollector(3);
+        for (int i = 0; i < 10_000; i++) {
+            collector.offer("set " + i + " 3x10", i, false);
+        }
+
+        assertEquals(10_000, collector.seen());
+        assertEquals(List.of("set 9999 3x10", "set 9998 3x10", "set 9997 3x10"), collector.result());
+    }
+}